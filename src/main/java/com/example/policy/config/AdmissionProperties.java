@@ -0,0 +1,25 @@
+package com.example.policy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.admission")
+public class AdmissionProperties {
+    // Total size of uploads being compressed and stored at once
+    private DataSize maxInFlightBytes = DataSize.ofMegabytes(512);
+    // Uploads compressed at once, whatever their size
+    private int compressionSlots = Runtime.getRuntime().availableProcessors();
+    // Requests allowed to wait for budget; beyond this they are refused straight away
+    private int maxQueued = 32;
+    private Duration maxQueueWait = Duration.ofSeconds(5);
+    // Sent as Retry-After when a request is refused
+    private Duration retryAfter = Duration.ofSeconds(10);
+}
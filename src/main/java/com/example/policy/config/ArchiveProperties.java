@@ -0,0 +1,25 @@
+package com.example.policy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.archive")
+public class ArchiveProperties {
+    private boolean enabled = false;
+    // Files are archived once their effective end date is this far in the past
+    private Duration minAge = Duration.ofDays(30);
+    // A new pack segment is started once the current one reaches this size
+    private DataSize segmentSize = DataSize.ofGigabytes(1);
+    // Files archived per batch, and the pause between batches to leave I/O for requests
+    private int batchSize = 50;
+    private Duration batchPause = Duration.ofSeconds(1);
+    private int maxBatchesPerRun = 100;
+}
@@ -0,0 +1,29 @@
+package com.example.policy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.compression")
+public class CompressionProperties {
+    // Uploads at least this large are compressed in parallel blocks
+    private DataSize parallelThreshold = DataSize.ofMegabytes(8);
+    private DataSize parallelBlockSize = DataSize.ofMegabytes(1);
+    // Codec per content type, see PolicyFileCodecs.forName. JPEG and PNG are already compressed;
+    // PDF streams mostly are, so only a fast pass pays off
+    private Map<String, String> codecs = new LinkedHashMap<>(Map.of(
+            "image/jpeg", "store",
+            "image/jpg", "store",
+            "image/png", "store",
+            "application/pdf", "deflate-fast"));
+    // Applies to types without their own entry
+    private String defaultCodec = "deflate";
+}
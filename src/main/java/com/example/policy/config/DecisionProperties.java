@@ -0,0 +1,24 @@
+package com.example.policy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.decisions")
+public class DecisionProperties {
+    // Attempts at recording a decision that keeps losing to concurrent updates
+    private int maxAttempts = 5;
+    // Backoff before the second attempt; doubles each attempt up to maxBackoff, with jitter
+    private Duration initialBackoff = Duration.ofMillis(20);
+    private Duration maxBackoff = Duration.ofMillis(500);
+    // Decisions accepted by one batch request
+    private int maxBatchSize = 500;
+    // Decisions of a batch applied per transaction
+    private int batchGroupSize = 50;
+}
@@ -0,0 +1,18 @@
+package com.example.policy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.file-cache")
+public class FileCacheProperties {
+    // Total decoded bytes kept off-heap; 0 disables the cache
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+    // Larger files are always streamed and never cached
+    private DataSize maxEntrySize = DataSize.ofMegabytes(32);
+}
@@ -0,0 +1,27 @@
+package com.example.policy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.file-limits")
+public class FileLimitProperties {
+    // Largest accepted file per content type
+    private Map<String, DataSize> maxSize = new LinkedHashMap<>(Map.of(
+            "application/pdf", DataSize.ofMegabytes(100),
+            "image/png", DataSize.ofMegabytes(20),
+            "image/jpeg", DataSize.ofMegabytes(20),
+            "image/jpg", DataSize.ofMegabytes(20)));
+    // Applies to types without their own entry
+    private DataSize defaultMaxSize = DataSize.ofMegabytes(100);
+    // Allowance for multipart boundaries and the other form fields when checking Content-Length
+    private DataSize requestOverhead = DataSize.ofKilobytes(64);
+}
@@ -0,0 +1,22 @@
+package com.example.policy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.file-store")
+public class FileStoreProperties {
+    // Removes stored content no policy file or revision references any more
+    private boolean gcEnabled = true;
+    // Content stored more recently is left alone, so it must exceed the longest transaction
+    // between storing content and saving the row that references it, such as a bulk import
+    private Duration gcGrace = Duration.ofDays(1);
+    // Hashes checked against the database per query
+    private int gcBatchSize = 500;
+}
@@ -0,0 +1,18 @@
+package com.example.policy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.history")
+public class HistoryProperties {
+    // Every n-th revision is a full snapshot, so rebuilding one applies at most n - 1 deltas
+    private int snapshotInterval = 10;
+    // Larger files are always kept as snapshots; deltas are computed in memory
+    private DataSize maxDeltaSize = DataSize.ofMegabytes(32);
+}
@@ -0,0 +1,20 @@
+package com.example.policy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.import")
+public class ImportProperties {
+    // Threads compressing entries of bulk imports
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // Entries compressed, then persisted in one transaction, at a time
+    private int batchSize = 200;
+    private int maxEntries = 10000;
+    private DataSize maxArchiveSize = DataSize.ofGigabytes(2);
+}
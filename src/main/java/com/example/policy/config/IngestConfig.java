@@ -0,0 +1,46 @@
+package com.example.policy.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class IngestConfig {
+
+    /**
+     * Bounded pool for background ingest. A full queue rejects the job instead of
+     * queueing without limit or running it on the request thread.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService ingestExecutor(IngestProperties ingestProperties) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(ingestProperties.getThreads(), ingestProperties.getThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(ingestProperties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "policy-ingest-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Pool compressing the entries of bulk imports; the import submits one batch at a time
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService importExecutor(ImportProperties importProperties) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(importProperties.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "policy-import-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
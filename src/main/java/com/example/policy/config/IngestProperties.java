@@ -0,0 +1,23 @@
+package com.example.policy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.ingest")
+public class IngestProperties {
+    // Accepted uploads wait here until a worker has compressed and stored them. Each node needs
+    // its own: files left in it are deleted at startup and their jobs failed
+    private String spoolDir = System.getProperty("user.home") + "/policy-ingest";
+    private int threads = 2;
+    // Jobs waiting for a worker; further submissions are refused until one frees up
+    private int queueCapacity = 16;
+    // Finished jobs stay visible on the status endpoint for this long
+    private Duration jobRetention = Duration.ofHours(1);
+}
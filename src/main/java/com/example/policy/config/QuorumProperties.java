@@ -0,0 +1,45 @@
+package com.example.policy.config;
+
+import com.example.policy.service.QuorumStrategy;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.quorum")
+public class QuorumProperties implements InitializingBean {
+    private Round reviewers = new Round(QuorumStrategy.Kind.MAJORITY);
+    private Round approvers = new Round(QuorumStrategy.Kind.UNANIMOUS);
+
+    // Fails the start on settings that make no working rule, not the first decision
+    @Override
+    public void afterPropertiesSet() {
+        this.reviewers.toStrategy();
+        this.approvers.toStrategy();
+    }
+
+    @Getter
+    @Setter
+    public static class Round {
+        private QuorumStrategy.Kind strategy;
+        // Share of the weight needed by SUPERMAJORITY
+        private double fraction = 2.0 / 3;
+        // Approvals needed by N_OF_M
+        private int required = 1;
+
+        public Round() {
+        }
+
+        public Round(QuorumStrategy.Kind strategy) {
+            this.strategy = strategy;
+        }
+
+        public QuorumStrategy toStrategy() {
+            return QuorumStrategy.of(this.strategy, this.fraction, this.required);
+        }
+    }
+}
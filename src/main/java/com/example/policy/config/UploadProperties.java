@@ -0,0 +1,25 @@
+package com.example.policy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "policy.upload")
+public class UploadProperties {
+    // Chunks of resumable uploads are spooled here until the upload is committed
+    private String root = System.getProperty("user.home") + "/policy-uploads";
+    private DataSize chunkSize = DataSize.ofMegabytes(8);
+    private DataSize maxFileSize = DataSize.ofGigabytes(1);
+    // Uploads with no chunk or commit for this long are deleted with their chunks; committed
+    // uploads are kept this long so a retried commit still finds its file
+    private Duration sessionTtl = Duration.ofDays(1);
+    // A commit still running after this long is taken to have died with its node
+    private Duration commitTimeout = Duration.ofHours(1);
+}
@@ -0,0 +1,37 @@
+package com.example.policy.config;
+
+import com.example.policy.service.PolicyFileValidator;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+
+/**
+ * Refuses multipart uploads whose declared Content-Length is already over every file limit.
+ * Multipart parsing is lazy, so this runs before any of the body is read.
+ */
+@Component
+@AllArgsConstructor
+public class UploadSizeInterceptor implements HandlerInterceptor {
+
+    private PolicyFileValidator policyFileValidator;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        String contentType = request.getContentType();
+        if (contentType == null || !contentType.toLowerCase().startsWith("multipart/")) {
+            return true;
+        }
+        long maxRequestSize = this.policyFileValidator.maxRequestSize();
+        if (request.getContentLengthLong() > maxRequestSize) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(),
+                    "Upload exceeds the limit of " + maxRequestSize + " bytes");
+            return false;
+        }
+        return true;
+    }
+}
@@ -1,17 +1,32 @@
 package com.example.policy.controller;
 
 import com.example.policy.model.*;
+import com.example.policy.service.DecisionRetry;
+import com.example.policy.service.PolicyExportService;
+import com.example.policy.config.DecisionProperties;
+import com.example.policy.config.ImportProperties;
+import com.example.policy.service.PolicyFileValidator;
+import com.example.policy.service.PolicyImportService;
+import com.example.policy.service.PolicyIngestService;
 import com.example.policy.service.PolicyService;
+import com.example.policy.service.UploadAdmission;
+import com.example.policy.service.UploadRejectedException;
 import com.example.policy.utils.FileFormats;
+import com.example.policy.utils.PolicyFileCodecs;
 import com.example.policy.utils.ResponseModel;
 import lombok.AllArgsConstructor;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Date;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 
 @RestController
@@ -21,6 +36,14 @@ import java.util.List;
 public class PolicyController {
 
     private PolicyService policyService;
+    private PolicyExportService policyExportService;
+    private PolicyIngestService policyIngestService;
+    private PolicyFileValidator policyFileValidator;
+    private UploadAdmission uploadAdmission;
+    private PolicyImportService policyImportService;
+    private ImportProperties importProperties;
+    private DecisionRetry decisionRetry;
+    private DecisionProperties decisionProperties;
 
 
     @PostMapping
@@ -41,7 +64,8 @@ public class PolicyController {
             @RequestParam("status") String status,
             @RequestParam("createdDate") @DateTimeFormat(pattern = "dd MMM yyyy") Date createdDate,
             @RequestParam("effectiveStartDate") @DateTimeFormat(pattern = "dd MMM yyyy") Date effectiveStartDate,
-            @RequestParam("effectiveEndDate") @DateTimeFormat(pattern = "dd MMM yyyy") Date effectiveEndDate) {
+            @RequestParam("effectiveEndDate") @DateTimeFormat(pattern = "dd MMM yyyy") Date effectiveEndDate,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
 
         if (!"CREATED".equals(status)) {
             return ResponseEntity.badRequest().body("Invalid status. Only 'CREATED' is allowed.");
@@ -62,22 +86,56 @@ public class PolicyController {
                     "Unsupported file format: " + file.getContentType());
         }
 
+        // Size limit and magic bytes are checked before anything is compressed or stored
+        String invalid = this.policyFileValidator.checkSize(file.getContentType(), file.getSize());
+        if (invalid == null) {
+            invalid = this.policyFileValidator.checkContent(file.getContentType(), file);
+        }
+        if (invalid != null) {
+            return ResponseModel.customValidations("file", invalid);
+        }
+
+        // Async ingest answers once the file is spooled; compression and persistence run in the background
+        if (async) {
+            try {
+                IngestJob job = this.policyIngestService.submitPolicyFile(policyId, file, version, status,
+                        createdDate, effectiveStartDate, effectiveEndDate);
+                return ResponseModel.accepted("Policy file accepted for processing", "/policy/ingest/" + job.getJobId(), job);
+            } catch (RejectedExecutionException e) {
+                return ResponseModel.serviceUnavailable("Ingest queue is full, retry later");
+            } catch (Exception e) {
+                return ResponseModel.error("Failed to add policy file: " + e.getMessage());
+            }
+        }
+
+        UploadAdmission.Permit permit = null;
         try {
+            permit = this.uploadAdmission.acquire(file.getSize());
             this.policyService.addPolicyFile(policyId, file, version, status,
                     createdDate, effectiveStartDate, effectiveEndDate);
             return ResponseModel.success("Policy file added successfully");
+        } catch (UploadRejectedException e) {
+            return ResponseModel.tooManyRequests(e.getMessage(), e.getRetryAfterSeconds());
         } catch (Exception e) {
             return ResponseModel.error("Failed to add policy file: " + e.getMessage());
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
         }
     }
 
     @PostMapping("/members")
     public ResponseEntity<?> addPolicyMember(@RequestBody PolicyMemberRequestModel memberRequest) {
+        if (memberRequest.getWeight() != null && memberRequest.getWeight() < 1) {
+            return ResponseModel.customValidations("weight", "Weight must be at least 1");
+        }
         try {
             this.policyService.addPolicyMember(
                     memberRequest.getPolicyId(),
                     memberRequest.getUserId(),
-                    memberRequest.getRole());
+                    memberRequest.getRole(),
+                    memberRequest.getWeight());
             return ResponseModel.success("Policy member added successfully");
         } catch (Exception e) {
             return ResponseModel.error("Failed to add policy member: " + e.getMessage());
@@ -91,12 +149,12 @@ public class PolicyController {
         }
 
         try {
-           this.policyService.updatePolicyReviewer(
+            this.decisionRetry.execute(() -> this.policyService.updatePolicyReviewer(
                     reviewerRequest.getPolicyId(),
                     reviewerRequest.getUserId(),
                     reviewerRequest.isAccepted(),
                     reviewerRequest.getRejectedReason(),
-                    reviewerRequest.getPolicyFileId());
+                    reviewerRequest.getPolicyFileId()));
             return ResponseModel.update("Policy review updated successfully");
         } catch (RuntimeException e) {
             return ResponseModel.error("Failed to update policy review: " + e.getMessage());
@@ -105,30 +163,91 @@ public class PolicyController {
 
     @PutMapping("/approver-decision")
     public ResponseEntity<?> updatePolicyApprover(@RequestBody PolicyReviewerRequestModel approverRequest) {
-        try {
-
-            Policy policy = this.policyService.getPolicyById(approverRequest.getPolicyId());
-            if (policy == null) {
-                return ResponseModel.error("Policy not found with ID: " + approverRequest.getPolicyId());
-            }
+        if (!approverRequest.isApproved() && (approverRequest.getRejectedReason() == null || approverRequest.getRejectedReason().trim().isEmpty())) {
+            return ResponseModel.customValidations("rejectedReason", "Reason is required when rejecting");
+        }
 
-           this.policyService.updatePolicyApprover(
+        try {
+            this.decisionRetry.execute(() -> this.policyService.updatePolicyApprover(
                     approverRequest.getPolicyId(),
                     approverRequest.getPolicyFileId(),
                     approverRequest.getUserId(),
                     approverRequest.isApproved(),
-                    approverRequest.getRejectedReason());
+                    approverRequest.getRejectedReason()));
             return ResponseModel.update("Policy approval updated successfully");
         } catch (RuntimeException e) {
             return ResponseModel.error("Failed to update policy approval: " + e.getMessage());
         }
     }
 
+    /**
+     * Records many decisions of one reviewer or approver at once. Decisions are applied in
+     * groups, each in its own transaction; the result of every decision is reported.
+     */
+    @PutMapping("/decisions")
+    public ResponseEntity<?> updateDecisions(@RequestBody PolicyDecisionRequestModel decisionRequest) {
+        PolicyRole role = decisionRequest.getRole();
+        if (role != PolicyRole.REVIEWER && role != PolicyRole.APPROVER) {
+            return ResponseModel.customValidations("role", "Role must be REVIEWER or APPROVER");
+        }
+        List<PolicyDecisionItem> decisions = decisionRequest.getDecisions();
+        if (decisions == null || decisions.isEmpty()) {
+            return ResponseModel.customValidations("decisions", "At least one decision is required");
+        }
+        if (decisions.size() > this.decisionProperties.getMaxBatchSize()) {
+            return ResponseModel.customValidations("decisions",
+                    "At most " + this.decisionProperties.getMaxBatchSize() + " decisions are allowed per request");
+        }
+
+        // Validate all decisions before applying any
+        PolicyDecisionResult[] results = new PolicyDecisionResult[decisions.size()];
+        List<Integer> valid = new ArrayList<>();
+        Set<Long> policyFileIds = new HashSet<>();
+        for (int i = 0; i < decisions.size(); i++) {
+            PolicyDecisionItem decision = decisions.get(i);
+            String error = null;
+            if (!decision.isApproved() && (decision.getRejectedReason() == null || decision.getRejectedReason().trim().isEmpty())) {
+                error = "Reason is required when rejecting";
+            } else if (!policyFileIds.add(decision.getPolicyFileId())) {
+                error = "Duplicate decision for policy file " + decision.getPolicyFileId();
+            }
+            if (error != null) {
+                results[i] = new PolicyDecisionResult(decision.getPolicyId(), decision.getPolicyFileId(),
+                        PolicyDecisionResult.Status.FAILED, null, error);
+            } else {
+                valid.add(i);
+            }
+        }
+
+        int groupSize = Math.max(1, this.decisionProperties.getBatchGroupSize());
+        for (int from = 0; from < valid.size(); from += groupSize) {
+            List<Integer> group = valid.subList(from, Math.min(from + groupSize, valid.size()));
+            List<PolicyDecisionItem> groupDecisions = new ArrayList<>(group.size());
+            for (int i : group) {
+                groupDecisions.add(decisions.get(i));
+            }
+            try {
+                List<PolicyDecisionResult> applied = this.decisionRetry.execute(() ->
+                        this.policyService.updateDecisions(decisionRequest.getUserId(), role, groupDecisions));
+                for (int j = 0; j < group.size(); j++) {
+                    results[group.get(j)] = applied.get(j);
+                }
+            } catch (RuntimeException e) {
+                for (int i : group) {
+                    PolicyDecisionItem decision = decisions.get(i);
+                    results[i] = new PolicyDecisionResult(decision.getPolicyId(), decision.getPolicyFileId(),
+                            PolicyDecisionResult.Status.FAILED, null, e.getMessage());
+                }
+            }
+        }
+        return ResponseModel.success("Decisions processed", Arrays.asList(results));
+    }
+
     @PutMapping("/files")
     public ResponseEntity<?> updatePolicyFiles(
             @RequestParam Long policyId,
             @RequestParam Long policyFileId,
-            @RequestParam MultipartFile file,
+            @RequestParam(required = false) MultipartFile file,
             @RequestParam String version,
             @RequestParam String status,
             @RequestParam @DateTimeFormat(pattern = "dd MMM yyyy") Date effectiveEndDate) {
@@ -138,12 +257,32 @@ public class PolicyController {
             return ResponseModel.customValidations("fileFormat",
                     "Unsupported file format: " + file.getContentType());
         }
+        if (file != null) {
+            String invalid = this.policyFileValidator.checkSize(file.getContentType(), file.getSize());
+            if (invalid == null) {
+                invalid = this.policyFileValidator.checkContent(file.getContentType(), file);
+            }
+            if (invalid != null) {
+                return ResponseModel.customValidations("file", invalid);
+            }
+        }
+        UploadAdmission.Permit permit = null;
         try {
+            // A metadata-only update stores nothing, so it takes no upload slot
+            if (file != null) {
+                permit = this.uploadAdmission.acquire(file.getSize());
+            }
             PolicyFiles updatedPolicyFiles = this.policyService.updatePolicyFiles(
                     policyId, policyFileId, file, version, status, effectiveEndDate);
             return ResponseModel.success("Policy files updated successfully", updatedPolicyFiles);
+        } catch (UploadRejectedException e) {
+            return ResponseModel.tooManyRequests(e.getMessage(), e.getRetryAfterSeconds());
         } catch (RuntimeException e) {
             return ResponseModel.error("Failed to update policy files: " + e.getMessage());
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
         }
     }
 
@@ -162,22 +301,30 @@ public class PolicyController {
     }
 
     @GetMapping("/{policyFilesId}")
-    public ResponseEntity<?> getPolicyById(@PathVariable Long policyFilesId) {
+    public ResponseEntity<?> getPolicyById(@PathVariable Long policyFilesId, WebRequest webRequest) {
         PolicyFiles policy = this.policyService.getPolicyFilesById(policyFilesId);
         if (policy == null) {
             return ResponseModel.notFound("Policy not found");
         }
+        if (webRequest.checkNotModified(ResponseModel.revisionEtag("file", policyFilesId, policy.getRevision()),
+                ResponseModel.lastModified(policy.getLastModifiedDate()))) {
+            return null;
+        }
         return ResponseModel.success("Policy retrieved successfully", policy);
     }
 
     @GetMapping("/response/{policyId}")
-    public ResponseEntity<?> getPolicyResponseModelById(@PathVariable Long policyId) {
+    public ResponseEntity<?> getPolicyResponseModelById(@PathVariable Long policyId, WebRequest webRequest) {
         try {
             // Retrieve the policy from the service
             Policy policy = this.policyService.getPolicyById(policyId);
             if (policy == null) {
                 return ResponseModel.notFound("Policy not found");
             }
+            if (webRequest.checkNotModified(ResponseModel.revisionEtag("policy", policyId, policy.getRevision()),
+                    ResponseModel.lastModified(policy.getLastModifiedDate()))) {
+                return null;
+            }
 
             // Map Policy to PolicyResponseModel
             PolicyResponseModel responseModel = new PolicyResponseModel(
@@ -193,20 +340,108 @@ public class PolicyController {
         }
     }
 
+    @GetMapping("/files/{policyFilesId}/revisions")
+    public ResponseEntity<?> getPolicyFileRevisions(@PathVariable Long policyFilesId) {
+        return ResponseModel.success("Policy file revisions retrieved successfully",
+                this.policyService.getPolicyFileRevisions(policyFilesId));
+    }
+
+    @GetMapping("/files/{policyFilesId}/revisions/{revisionNumber}")
+    public ResponseEntity<?> downloadPolicyFileRevision(@PathVariable Long policyFilesId, @PathVariable int revisionNumber) {
+        try {
+            PolicyFileRevision revision = this.policyService.getPolicyFileRevision(policyFilesId, revisionNumber);
+            return ResponseModel.mediaFile(revision.getFileType(), this.policyService.getPolicyFileRevisionResource(revision));
+        } catch (Exception e) {
+            return ResponseModel.notFound(e.getMessage());
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPolicyFiles(
+            @RequestParam(value = "policyIds", required = false) List<Long> policyIds) {
+        return ResponseModel.attachment("application/zip", "policies.zip",
+                out -> this.policyExportService.exportPolicyFiles(policyIds, out));
+    }
+
+    /**
+     * Imports many policy files at once from a ZIP archive and a JSON manifest naming, for each
+     * file in the archive, the policy it belongs to and its version, status and dates
+     */
+    @PostMapping("/files/import")
+    public ResponseEntity<?> importPolicyFiles(
+            @RequestPart("archive") MultipartFile archive,
+            @RequestPart("manifest") List<PolicyImportEntry> manifest) {
+        if (archive.getSize() > this.importProperties.getMaxArchiveSize().toBytes()) {
+            return ResponseModel.customValidations("archive",
+                    "Archive exceeds the limit of " + this.importProperties.getMaxArchiveSize());
+        }
+        if (manifest == null || manifest.isEmpty()) {
+            return ResponseModel.customValidations("manifest", "Manifest is required");
+        }
+        try {
+            List<PolicyImportResult> results = this.policyImportService.importPolicyFiles(archive, manifest);
+            return ResponseModel.success("Policy files import completed", results);
+        } catch (Exception e) {
+            return ResponseModel.error("Failed to import policy files: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/ingest/{jobId}")
+    public ResponseEntity<?> getIngestJob(@PathVariable String jobId) {
+        try {
+            return ResponseModel.success("Ingest job retrieved successfully", this.policyIngestService.getJob(jobId));
+        } catch (Exception e) {
+            return ResponseModel.notFound(e.getMessage());
+        }
+    }
+
+    @GetMapping("/admission/stats")
+    public ResponseEntity<?> getUploadAdmissionStats() {
+        return ResponseModel.successMap("Upload admission statistics", this.uploadAdmission.stats());
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getPolicyFileCacheStats() {
+        return ResponseModel.successMap("Policy file cache statistics", this.policyService.getPolicyFileCacheStats());
+    }
+
     @GetMapping("/download/{policyFilesId}")
-    public ResponseEntity<?> downloadPolicyFile(@PathVariable Long policyFilesId) {
+    public ResponseEntity<?> downloadPolicyFile(
+            @PathVariable Long policyFilesId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            WebRequest webRequest) {
         try {
             PolicyFiles policyFile = this.policyService.getPolicyFilesById(policyFilesId);
             if (policyFile == null) {
                 return ResponseModel.notFound("Policy file not found");
             }
 
-           this.policyService.getPolicyFileContent(policyFilesId);
+            // Send the stored bytes when the client can decode them; ranges are always served on decoded content
+            String contentEncoding = PolicyFileCodecs.forId(policyFile.getCodec()).getHttpContentEncoding();
+            boolean passthrough = range == null && ResponseModel.acceptsEncoding(acceptEncoding, contentEncoding);
 
-            return ResponseModel.sendMediaWithDecompress(
-                    policyFile.getFile(),
-                    policyFile.getFileType()
-            );
+            // Content hash is known without reading the file; unmigrated rows have none and are always sent
+            if (policyFile.getContentHash() != null && webRequest.checkNotModified(
+                    ResponseModel.contentEtag(policyFile.getContentHash(), passthrough ? contentEncoding : null),
+                    ResponseModel.lastModified(policyFile.getLastModifiedDate()))) {
+                return null;
+            }
+
+            if (passthrough) {
+                return ResponseModel.encodedMediaFile(
+                        policyFile.getFileType(),
+                        contentEncoding,
+                        this.policyService.getPolicyFileResource(policyFile, false)
+                );
+            }
+
+            Resource content = this.policyService.getPolicyFileResource(policyFile, true);
+            if (range != null && content.contentLength() < 0) {
+                // Unmigrated rows have no known length to cut a range from, so they are sent whole with 200
+                content = new InputStreamResource(content, content.getDescription());
+            }
+            return ResponseModel.mediaFile(policyFile.getFileType(), content);
 
         } catch (Exception e) {
             return ResponseModel.error("Failed to download policy file: " + e.getMessage());
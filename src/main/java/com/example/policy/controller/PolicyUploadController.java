@@ -0,0 +1,117 @@
+package com.example.policy.controller;
+
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.model.PolicyUploadSession;
+import com.example.policy.service.PolicyFileValidator;
+import com.example.policy.service.PolicyUploadService;
+import com.example.policy.service.UploadRejectedException;
+import com.example.policy.utils.FileFormats;
+import com.example.policy.utils.ResponseModel;
+import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.Date;
+
+/**
+ * Resumable upload of policy files: create an upload, PUT its numbered chunks in any order
+ * (resending any that failed), then commit to attach the file to the policy.
+ */
+@RestController
+@AllArgsConstructor
+@RequestMapping("policy/uploads")
+@CrossOrigin
+public class PolicyUploadController {
+
+    private PolicyUploadService policyUploadService;
+    private PolicyFileValidator policyFileValidator;
+
+
+    @PostMapping
+    public ResponseEntity<?> createUpload(
+            @RequestParam("policyId") Long policyId,
+            @RequestParam("fileName") String fileName,
+            @RequestParam("fileType") String fileType,
+            @RequestParam("fileSize") long fileSize,
+            @RequestParam("version") String version,
+            @RequestParam("status") String status,
+            @RequestParam("createdDate") @DateTimeFormat(pattern = "dd MMM yyyy") Date createdDate,
+            @RequestParam("effectiveStartDate") @DateTimeFormat(pattern = "dd MMM yyyy") Date effectiveStartDate,
+            @RequestParam("effectiveEndDate") @DateTimeFormat(pattern = "dd MMM yyyy") Date effectiveEndDate) {
+
+        if (!"CREATED".equals(status)) {
+            return ResponseEntity.badRequest().body("Invalid status. Only 'CREATED' is allowed.");
+        }
+
+        // Validate dates
+        if (effectiveStartDate != null && effectiveEndDate != null && effectiveStartDate.after(effectiveEndDate)) {
+            return ResponseModel.customValidations("dates", "Effective start date must be before effective end date");
+        }
+
+        // Validate file format
+        if (!FileFormats.proposalFileFormat().contains(fileType)) {
+            return ResponseModel.customValidations("fileFormat", "Unsupported file format: " + fileType);
+        }
+
+        // The declared size is checked now; the magic bytes are checked when chunk 0 arrives
+        String invalid = this.policyFileValidator.checkSize(fileType, fileSize);
+        if (invalid != null) {
+            return ResponseModel.customValidations("fileSize", invalid);
+        }
+
+        try {
+            PolicyUploadSession upload = this.policyUploadService.createUpload(policyId, fileName, fileType, fileSize,
+                    version, status, createdDate, effectiveStartDate, effectiveEndDate);
+            return ResponseModel.success("Upload created successfully", upload);
+        } catch (Exception e) {
+            return ResponseModel.error("Failed to create upload: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> getUpload(@PathVariable String uploadId) {
+        try {
+            return ResponseModel.success("Upload retrieved successfully", this.policyUploadService.getUpload(uploadId));
+        } catch (Exception e) {
+            return ResponseModel.notFound(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> putChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            @RequestHeader(value = "X-Chunk-SHA256", required = false) String sha256,
+            InputStream content) {
+        try {
+            PolicyUploadSession upload = this.policyUploadService.putChunk(uploadId, index, content, sha256);
+            return ResponseModel.success("Chunk " + index + " stored", upload);
+        } catch (Exception e) {
+            return ResponseModel.error("Failed to store chunk: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/{uploadId}/commit")
+    public ResponseEntity<?> commitUpload(@PathVariable String uploadId) {
+        try {
+            PolicyFiles policyFile = this.policyUploadService.commitUpload(uploadId);
+            return ResponseModel.success("Policy file added successfully", policyFile);
+        } catch (UploadRejectedException e) {
+            return ResponseModel.tooManyRequests(e.getMessage(), e.getRetryAfterSeconds());
+        } catch (Exception e) {
+            return ResponseModel.error("Failed to commit upload: " + e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<?> abortUpload(@PathVariable String uploadId) {
+        try {
+            this.policyUploadService.abortUpload(uploadId);
+            return ResponseModel.success("Upload aborted");
+        } catch (Exception e) {
+            return ResponseModel.error("Failed to abort upload: " + e.getMessage());
+        }
+    }
+}
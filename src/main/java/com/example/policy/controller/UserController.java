@@ -1,6 +1,8 @@
 package com.example.policy.controller;
 
 
+import com.example.policy.model.PolicyInbox;
+import com.example.policy.model.PolicyRole;
 import com.example.policy.model.User;
 import com.example.policy.service.UserService;
 import lombok.AllArgsConstructor;
@@ -40,5 +42,17 @@ public class UserController {
         return ResponseEntity.ok(user);
     }
 
-}
+    /**
+     * Policy files the user still has to review or approve, a page at a time
+     */
+    @GetMapping("/{userId}/inbox")
+    public ResponseEntity<PolicyInbox> getInbox(@PathVariable long userId,
+                                                @RequestParam(required = false) PolicyRole role,
+                                                @RequestParam(required = false) PolicyRole afterRole,
+                                                @RequestParam(defaultValue = "0") long after,
+                                                @RequestParam(defaultValue = "50") int limit) {
+        PolicyInbox inbox = this.userService.getInbox(userId, role, afterRole, after, limit);
+        return ResponseEntity.ok(inbox);
+    }
 
+}
@@ -0,0 +1,17 @@
+package com.example.policy.model;
+
+/**
+ * Shared settings of the table-based id generators. Each entity draws its ids from its own
+ * row of {@link #TABLE}, keyed by its table name, and reserves {@link #ALLOCATION_SIZE} ids
+ * per round trip so inserts can be batched.
+ */
+public final class IdGenerators {
+
+    public static final String TABLE = "id_generators";
+    public static final String SEGMENT_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGenerators() {
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.policy.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Progress of a background policy file ingest. Jobs are stored so their status can be read
+ * from any node and after a restart; finished jobs are kept for the job retention period.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "ingest_job")
+public class IngestJob {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    // Longest error message stored with a failed job
+    public static final int MAX_ERROR_LENGTH = 1000;
+
+    @Id
+    private String jobId;
+    private Long policyId;
+    private String fileName;
+    private long fileSize;
+
+    @Enumerated(EnumType.STRING)
+    private volatile Status status = Status.QUEUED;
+    // Uncompressed bytes read so far by the compressor. Live only on the node running the job;
+    // the stored row has the count as of the last status change
+    private volatile long bytesProcessed;
+    private volatile Long policyFilesId;
+    @Column(length = MAX_ERROR_LENGTH)
+    private volatile String error;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd MMM yyyy HH:mm:ss")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date submittedDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd MMM yyyy HH:mm:ss")
+    @Temporal(TemporalType.TIMESTAMP)
+    private volatile Date completedDate;
+}
@@ -7,7 +7,9 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.util.Date;
 import java.util.List;
 
 @AllArgsConstructor
@@ -18,13 +20,25 @@ import java.util.List;
 @Table(name = "policy")
 public class Policy {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "policy_id")
+    @TableGenerator(name = "policy_id", table = IdGenerators.TABLE, pkColumnName = IdGenerators.SEGMENT_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "policy",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "policy_id")
     private long policyId ;
 
     private String policyName;
     private String description;
 
+    // Bumped whenever the policy or anything in its file list changes; drives the ETag of /policy/response
+    @JsonIgnore
+    private long revision;
+
+    @JsonIgnore
+    @UpdateTimestamp
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastModifiedDate;
+
     @OneToMany(mappedBy = "policy", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<PolicyFiles> policyFilesList;
 
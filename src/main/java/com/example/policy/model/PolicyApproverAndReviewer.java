@@ -12,10 +12,16 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+// Serves the inbox: a user's pending rows of one role, in policy file order, are one index range
+@Table(name = "policy_approver_and_reviewer", indexes = @Index(name = "idx_par_user_pending",
+        columnList = "user_id, role, decided, moot, policy_files_id"))
 public class PolicyApproverAndReviewer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "policy_approver_and_reviewer_id")
+    @TableGenerator(name = "policy_approver_and_reviewer_id", table = IdGenerators.TABLE, pkColumnName = IdGenerators.SEGMENT_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "policy_approver_and_reviewer",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "policy_approver_and_reviewer_id")
     private long policyApproverAndReviewerId;
 
@@ -26,6 +32,16 @@ public class PolicyApproverAndReviewer {
 
     private boolean isApproved;
     private String rejectedReason;
+    // Set with the decision; a rejection without a reason is still a decision
+    private boolean decided;
+    // The round closed before this row decided, so its vote is no longer needed
+    private boolean moot;
+    // Copied from the member; null counts as 1
+    private Integer weight;
+
+    @JsonIgnore
+    @Version
+    private long version;
 
 
     @ManyToOne(cascade = CascadeType.ALL)
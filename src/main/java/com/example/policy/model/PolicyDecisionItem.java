@@ -0,0 +1,17 @@
+package com.example.policy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PolicyDecisionItem {
+    private long policyId;
+    private long policyFileId;
+    private boolean approved;
+    private String rejectedReason;
+}
@@ -0,0 +1,21 @@
+package com.example.policy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Decisions of one reviewer or approver on many policy files
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PolicyDecisionRequestModel {
+    private long userId;
+    private PolicyRole role;
+    private List<PolicyDecisionItem> decisions;
+}
@@ -0,0 +1,22 @@
+package com.example.policy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PolicyDecisionResult {
+
+    public enum Status { APPLIED, FAILED }
+
+    private long policyId;
+    private long policyFileId;
+    private Status status;
+    // Status of the policy file after the decision, e.g. UNDER_APPROVAL once the review closed
+    private String fileStatus;
+    private String error;
+}
@@ -0,0 +1,31 @@
+package com.example.policy.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Blob;
+
+/**
+ * The legacy LONGBLOB column of policy_files, mapped on its own so that loading a
+ * PolicyFiles row never reads blob pages. Only rows written before the file store
+ * existed still have content here.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "policy_files")
+public class PolicyFileContent {
+
+    @Id
+    @Column(name = "policy_files_id")
+    private long policyFilesId;
+
+    @Lob
+    @Column(columnDefinition = "LONGBLOB")
+    private Blob file;
+}
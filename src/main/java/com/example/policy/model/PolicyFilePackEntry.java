@@ -0,0 +1,37 @@
+package com.example.policy.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Location of archived content inside a pack segment
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "policy_file_pack_entry")
+public class PolicyFilePackEntry {
+
+    @Id
+    private String contentHash;
+
+    private int segment;
+    // Offset of the content itself, after the entry header
+    @Column(name = "pack_offset")
+    private long offset;
+    @Column(name = "pack_length")
+    private long length;
+
+    // Policy file the content was archived for
+    private Long policyFilesId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date archivedDate;
+}
@@ -0,0 +1,59 @@
+package com.example.policy.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * One entry in the append-only history of a policy file. A SNAPSHOT holds the full content;
+ * a DELTA holds a binary delta against the revision before it.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "policy_file_revision", uniqueConstraints =
+        @UniqueConstraint(columnNames = {"policy_files_id", "revision_number"}))
+public class PolicyFileRevision {
+
+    public enum Kind { SNAPSHOT, DELTA }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "policy_file_revision_id")
+    @TableGenerator(name = "policy_file_revision_id", table = IdGenerators.TABLE, pkColumnName = IdGenerators.SEGMENT_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "policy_file_revision",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private long policyFileRevisionId;
+
+    @Column(name = "policy_files_id")
+    private long policyFilesId;
+
+    @Column(name = "revision_number")
+    private int revisionNumber;
+
+    @Enumerated(EnumType.STRING)
+    private Kind kind;
+
+    // Snapshot content or delta, in the PolicyFileStore
+    @JsonIgnore
+    private String contentHash;
+    private Long contentSize;
+    @JsonIgnore
+    private String codec;
+
+    private Long fileSize;
+    private String fileName;
+    private String fileType;
+    private String policyVersion;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd MMM yyyy HH:mm:ss")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdDate;
+}
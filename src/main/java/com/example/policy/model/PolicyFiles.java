@@ -7,6 +7,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.util.Date;
 import java.util.List;
@@ -16,20 +18,33 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
+// Only changed columns are written, so saving the entity never overwrites the vote tallies
+@DynamicUpdate
 @Table(name = "policy_files")
 public class PolicyFiles {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "policy_files_id")
+    @TableGenerator(name = "policy_files_id", table = IdGenerators.TABLE, pkColumnName = IdGenerators.SEGMENT_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "policy_files",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "policy_files_id")
     private long policyFilesId ;
 
     private String policyVersion;
 
+    // Content lives in the PolicyFileStore; rows not yet migrated keep it in PolicyFileContent
     @JsonIgnore
-    @Lob
-    @Column(columnDefinition = "LONGBLOB")
-    private byte[] file;
+    private String contentHash;
+    @JsonIgnore
+    private Long contentSize;
+    @JsonIgnore
+    private String codec;
+    // Content has been copied to a pack segment by the archiver
+    @JsonIgnore
+    private boolean archived;
+    private Long fileSize;
+
     private String fileName;
     private String fileType;
     private String status;
@@ -49,6 +64,40 @@ public class PolicyFiles {
     @Temporal(TemporalType.TIMESTAMP)
     private Date effectiveEndDate;
 
+    // Bumped on every change to the file or its reviewer/approver rows; drives the metadata ETag
+    @JsonIgnore
+    private long revision;
+
+    // Optimistic lock for entity saves. The vote tallies are changed by conditional bulk
+    // updates under the row lock instead, so they do not bump it and votes do not conflict
+    @JsonIgnore
+    @Version
+    private long version;
+
+    // Weight of the reviewer and approver rows of this file and of their decisions, kept in
+    // step by conditional updates so a vote never has to re-read the other rows. Each row
+    // weighs 1 unless its member was given a weight
+    @JsonIgnore
+    private int reviewersAssigned;
+    @JsonIgnore
+    private int reviewersApproved;
+    @JsonIgnore
+    private int reviewersRejected;
+    @JsonIgnore
+    private int approversAssigned;
+    @JsonIgnore
+    private int approversApproved;
+    @JsonIgnore
+    private int approversRejected;
+    // False for files created before the tallies existed, until VoteTallyMigration counts them
+    @JsonIgnore
+    private boolean votesCounted;
+
+    @JsonIgnore
+    @UpdateTimestamp
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastModifiedDate;
+
     @ManyToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "policy_id")
     @JsonIgnore
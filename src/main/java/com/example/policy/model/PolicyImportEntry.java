@@ -0,0 +1,35 @@
+package com.example.policy.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * One line of a bulk import manifest: a file inside the ZIP and the policy file to create from it
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PolicyImportEntry {
+    // Path of the file inside the ZIP
+    private String path;
+    private long policyId;
+    private String version;
+    private String status;
+    // Detected from the file content when not given
+    private String fileType;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd MMM yyyy")
+    private Date createdDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd MMM yyyy")
+    private Date effectiveStartDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd MMM yyyy")
+    private Date effectiveEndDate;
+}
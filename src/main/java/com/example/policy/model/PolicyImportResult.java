@@ -0,0 +1,21 @@
+package com.example.policy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PolicyImportResult {
+
+    public enum Status { IMPORTED, FAILED }
+
+    private String path;
+    private long policyId;
+    private Status status;
+    private Long policyFilesId;
+    private String error;
+}
@@ -0,0 +1,24 @@
+package com.example.policy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * One page of a user's inbox. Items are ordered by role, then policy file id; pass
+ * nextRole and nextAfter back as afterRole and after to read the next page. Both are
+ * null on the last page.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PolicyInbox {
+
+    private List<PolicyInboxItem> items;
+    private PolicyRole nextRole;
+    private Long nextAfter;
+}
@@ -0,0 +1,32 @@
+package com.example.policy.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * A policy file still waiting on a user's decision as reviewer or approver
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PolicyInboxItem {
+
+    private PolicyRole role;
+    private Integer weight;
+    private long policyId;
+    private String policyName;
+    private long policyFilesId;
+    private String policyVersion;
+    private String fileName;
+    private String fileType;
+    private String status;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd MMM yyyy")
+    private Date createdDate;
+}
@@ -15,4 +15,6 @@ public class PolicyMemberRequestModel {
     private long policyId;
     private long userId;
     private PolicyRole role;
+    // Voting weight of a reviewer or approver; 1 when not given
+    private Integer weight;
 }
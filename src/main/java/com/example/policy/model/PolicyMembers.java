@@ -15,13 +15,19 @@ import lombok.Setter;
 @Table(name = "policy_members")
 public class PolicyMembers {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "policy_members_id")
+    @TableGenerator(name = "policy_members_id", table = IdGenerators.TABLE, pkColumnName = IdGenerators.SEGMENT_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "policy_members",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "policy_member_id")
     private long policyMemberId ;
 
     @Enumerated(EnumType.STRING)
     private PolicyRole role;
 
+    // Voting weight of a reviewer or approver; null counts as 1
+    private Integer weight;
+
     @ManyToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "policy_id")
     @JsonIgnore
@@ -0,0 +1,71 @@
+package com.example.policy.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.util.Date;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "policy_upload_session")
+public class PolicyUploadSession {
+
+    @Id
+    private String uploadId;
+
+    private Long policyId;
+
+    private String fileName;
+    private String fileType;
+    private long fileSize;
+    private long chunkSize;
+
+    // Details of the policy file created on commit
+    private String policyVersion;
+    private String status;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd MMM yyyy")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd MMM yyyy")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date effectiveStartDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd MMM yyyy")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date effectiveEndDate;
+
+    @UpdateTimestamp
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastModifiedDate;
+
+    // Set while a commit is compressing and storing the file; a commit older than the commit
+    // timeout is taken to have died and can be taken over
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date commitStartedDate;
+
+    // The file the upload became, set in the transaction that creates it
+    private Long policyFilesId;
+
+    // Chunk indexes already on disk, filled in by the upload service
+    @Transient
+    private List<Integer> receivedChunks;
+
+    public int getChunkCount() {
+        return (int) Math.max(1, (this.fileSize + this.chunkSize - 1) / this.chunkSize);
+    }
+
+    public long getChunkLength(int index) {
+        return index < getChunkCount() - 1 ? this.chunkSize : this.fileSize - this.chunkSize * index;
+    }
+}
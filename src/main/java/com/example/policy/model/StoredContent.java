@@ -0,0 +1,15 @@
+package com.example.policy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class StoredContent {
+    private String contentHash;
+    private long contentSize;
+    // Modification time this put gave the stored copy; a later put of the same bytes moves it
+    private long storedAt;
+    // The bytes were not stored before this put
+    private boolean created;
+}
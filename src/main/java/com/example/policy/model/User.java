@@ -18,7 +18,10 @@ import java.util.List;
 @Table(name = "users_new")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "users_new_id")
+    @TableGenerator(name = "users_new_id", table = IdGenerators.TABLE, pkColumnName = IdGenerators.SEGMENT_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "users_new",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "user_id")
     private long userId;
 
@@ -0,0 +1,26 @@
+package com.example.policy.repository;
+
+import com.example.policy.model.IngestJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+
+@Repository
+public interface IngestJobRepository extends JpaRepository<IngestJob, String> {
+
+    // Jobs whose spooled upload was lost with the node that accepted them
+    @Modifying
+    @Query("update IngestJob j set j.status = com.example.policy.model.IngestJob.Status.FAILED, j.error = :error, " +
+            "j.completedDate = :now where j.jobId in :jobIds and j.completedDate is null")
+    int markInterrupted(@Param("jobIds") Collection<String> jobIds, @Param("error") String error,
+                        @Param("now") Date now);
+
+    @Modifying
+    @Query("delete from IngestJob j where j.completedDate < :cutoff")
+    int deleteFinishedBefore(@Param("cutoff") Date cutoff);
+}
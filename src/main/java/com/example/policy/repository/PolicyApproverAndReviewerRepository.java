@@ -3,10 +3,16 @@ package com.example.policy.repository;
 import com.example.policy.model.Policy;
 import com.example.policy.model.PolicyApproverAndReviewer;
 import com.example.policy.model.PolicyFiles;
+import com.example.policy.model.PolicyInboxItem;
 import com.example.policy.model.PolicyRole;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,9 +21,94 @@ public interface PolicyApproverAndReviewerRepository extends JpaRepository<Polic
 
     List<PolicyApproverAndReviewer> findByUserIdAndPolicy_PolicyIdAndPolicyFiles_PolicyFilesId(Long userId, Long policyId, Long policyFileId);
 
+    // Rows of one user on many files, with their file and policy, in one query
+    @Query("select p from PolicyApproverAndReviewer p join fetch p.policy join fetch p.policyFiles f " +
+            "where p.userId = :userId and p.role = :role and f.policyFilesId in :policyFilesIds")
+    List<PolicyApproverAndReviewer> findDecisionRows(@Param("userId") long userId, @Param("role") PolicyRole role,
+                                                     @Param("policyFilesIds") Collection<Long> policyFilesIds);
+
+    // Pending rows of a user after a policy file id, walking idx_par_user_pending
+    @Query("select new com.example.policy.model.PolicyInboxItem(p.role, p.weight, p.policy.policyId, pol.policyName, " +
+            "p.policyFiles.policyFilesId, f.policyVersion, f.fileName, f.fileType, f.status, f.createdDate) " +
+            "from PolicyApproverAndReviewer p join p.policy pol join p.policyFiles f " +
+            "where p.userId = :userId and p.role = :role and p.decided = false and p.moot = false " +
+            "and p.policyFiles.policyFilesId > :after order by p.policyFiles.policyFilesId")
+    List<PolicyInboxItem> findInbox(@Param("userId") long userId, @Param("role") PolicyRole role,
+                                    @Param("after") long after, Pageable pageable);
+
     List<PolicyApproverAndReviewer> findByPolicyAndRoleAndPolicyFiles(Policy policy, PolicyRole role, PolicyFiles policyFiles);
 
     boolean existsByPolicyAndPolicyFilesAndUserIdAndRole(Policy policy, PolicyFiles policyFiles, Long userId, PolicyRole role);
 
+    interface MissingAssignment {
+        long getUserId();
+        long getPolicyId();
+        long getPolicyFilesId();
+        PolicyRole getRole();
+        Integer getWeight();
+    }
+
+    // REVIEWER and APPROVER members of the files' policies that have no row on the file yet
+    @Query("select u.userId as userId, m.policy.policyId as policyId, f.policyFilesId as policyFilesId, " +
+            "m.role as role, max(m.weight) as weight from PolicyMembers m join m.user u, PolicyFiles f " +
+            "where f.policy = m.policy and f.policyFilesId in :policyFilesIds " +
+            "and m.role in (com.example.policy.model.PolicyRole.REVIEWER, com.example.policy.model.PolicyRole.APPROVER) " +
+            "and not exists (select p from PolicyApproverAndReviewer p " +
+            "where p.policyFiles = f and p.userId = u.userId and p.role = m.role) " +
+            "group by u.userId, m.policy.policyId, f.policyFilesId, m.role")
+    List<MissingAssignment> findMissingForFiles(@Param("policyFilesIds") Collection<Long> policyFilesIds);
+
+    // Files of the policy still waiting on the role that have no row for the user yet
+    @Query("select f.policyFilesId from PolicyFiles f where f.policy.policyId = :policyId " +
+            "and ((:role = com.example.policy.model.PolicyRole.REVIEWER and f.status = 'CREATED') " +
+            "or (:role = com.example.policy.model.PolicyRole.APPROVER and f.status in ('CREATED', 'UNDER_APPROVAL'))) " +
+            "and not exists (select p from PolicyApproverAndReviewer p " +
+            "where p.policyFiles = f and p.userId = :userId and p.role = :role)")
+    List<Long> findMissingForMember(@Param("policyId") long policyId, @Param("userId") long userId,
+                                    @Param("role") PolicyRole role);
+
+    // Records a decision only if the row has none yet; returns 0 when there is no such undecided row
+    @Modifying(flushAutomatically = true)
+    @Query("update versioned PolicyApproverAndReviewer p set p.isApproved = :approved, p.rejectedReason = :rejectedReason, " +
+            "p.decided = true where p.userId = :userId and p.policy.policyId = :policyId " +
+            "and p.policyFiles.policyFilesId = :policyFilesId and p.role = :role and p.decided = false and p.moot = false")
+    int recordDecision(@Param("policyId") long policyId, @Param("policyFilesId") long policyFilesId,
+                       @Param("userId") long userId, @Param("role") PolicyRole role,
+                       @Param("approved") boolean approved, @Param("rejectedReason") String rejectedReason);
+
+    // Read from the database, not from a row already loaded in the session
+    @Query("select p.moot from PolicyApproverAndReviewer p where p.policyApproverAndReviewerId = :id")
+    boolean isMoot(@Param("id") long id);
+
+    // Closes a round: its rows still waiting on a decision no longer need one
+    @Modifying(flushAutomatically = true)
+    @Query("update versioned PolicyApproverAndReviewer p set p.moot = true " +
+            "where p.policyFiles.policyFilesId = :policyFilesId and p.role = :role and p.decided = false and p.moot = false")
+    int markPendingMoot(@Param("policyFilesId") long policyFilesId, @Param("role") PolicyRole role);
+
+    // Files with rows still waiting on a round that closed before closing a round mooted them
+    @Query("select distinct f.policyFilesId from PolicyApproverAndReviewer p join p.policyFiles f " +
+            "where p.decided = false and p.moot = false and f.policyFilesId > :after " +
+            "and ((p.role = com.example.policy.model.PolicyRole.REVIEWER " +
+            "and f.status in ('UNDER_APPROVAL', 'REJECTED_BY_REVIEWERS', 'APPROVED', 'REJECTED')) " +
+            "or (p.role = com.example.policy.model.PolicyRole.APPROVER " +
+            "and f.status in ('REJECTED_BY_REVIEWERS', 'APPROVED', 'REJECTED'))) " +
+            "order by f.policyFilesId")
+    List<Long> findFilesWithClosedPending(@Param("after") long after, Pageable pageable);
+
+    @Modifying
+    @Query("update versioned PolicyApproverAndReviewer p set p.moot = true " +
+            "where p.policyFiles.policyFilesId in :policyFilesIds and p.decided = false and p.moot = false " +
+            "and ((p.role = com.example.policy.model.PolicyRole.REVIEWER and p.policyFiles.policyFilesId in " +
+            "(select f.policyFilesId from PolicyFiles f " +
+            "where f.status in ('UNDER_APPROVAL', 'REJECTED_BY_REVIEWERS', 'APPROVED', 'REJECTED'))) " +
+            "or (p.role = com.example.policy.model.PolicyRole.APPROVER and p.policyFiles.policyFilesId in " +
+            "(select f.policyFilesId from PolicyFiles f where f.status in ('REJECTED_BY_REVIEWERS', 'APPROVED', 'REJECTED'))))")
+    int markClosedPendingMoot(@Param("policyFilesIds") Collection<Long> policyFilesIds);
 
-}
\ No newline at end of file
+    // Rows decided before the decided flag existed
+    @Modifying
+    @Query("update PolicyApproverAndReviewer p set p.decided = true where p.policyFiles.policyFilesId in :policyFilesIds " +
+            "and p.decided = false and (p.isApproved = true or p.rejectedReason is not null)")
+    int markLegacyDecisions(@Param("policyFilesIds") Collection<Long> policyFilesIds);
+}
@@ -0,0 +1,20 @@
+package com.example.policy.repository;
+
+import com.example.policy.model.PolicyFileContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PolicyFileContentRepository extends JpaRepository<PolicyFileContent, Long> {
+    @Query("select c.policyFilesId from PolicyFileContent c where c.file is not null")
+    List<Long> findIdsWithLegacyContent();
+
+    @Modifying
+    @Query("update PolicyFileContent c set c.file = null where c.policyFilesId = :policyFilesId")
+    int clearLegacyContent(@Param("policyFilesId") long policyFilesId);
+}
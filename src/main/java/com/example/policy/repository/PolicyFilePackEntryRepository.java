@@ -0,0 +1,9 @@
+package com.example.policy.repository;
+
+import com.example.policy.model.PolicyFilePackEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PolicyFilePackEntryRepository extends JpaRepository<PolicyFilePackEntry, String> {
+}
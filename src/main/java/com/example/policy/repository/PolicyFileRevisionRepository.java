@@ -0,0 +1,25 @@
+package com.example.policy.repository;
+
+import com.example.policy.model.PolicyFileRevision;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PolicyFileRevisionRepository extends JpaRepository<PolicyFileRevision, Long> {
+    List<PolicyFileRevision> findByPolicyFilesIdOrderByRevisionNumberAsc(long policyFilesId);
+    Optional<PolicyFileRevision> findTopByPolicyFilesIdOrderByRevisionNumberDesc(long policyFilesId);
+    Optional<PolicyFileRevision> findByPolicyFilesIdAndRevisionNumber(long policyFilesId, int revisionNumber);
+    Optional<PolicyFileRevision> findTopByPolicyFilesIdAndKindAndRevisionNumberLessThanEqualOrderByRevisionNumberDesc(
+            long policyFilesId, PolicyFileRevision.Kind kind, int revisionNumber);
+    List<PolicyFileRevision> findByPolicyFilesIdAndRevisionNumberBetweenOrderByRevisionNumberAsc(
+            long policyFilesId, int from, int to);
+
+    @Query("select distinct r.contentHash from PolicyFileRevision r where r.contentHash in :contentHashes")
+    List<String> findReferencedContentHashes(@Param("contentHashes") Collection<String> contentHashes);
+}
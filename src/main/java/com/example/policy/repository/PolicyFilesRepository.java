@@ -1,9 +1,128 @@
 package com.example.policy.repository;
 
 import com.example.policy.model.PolicyFiles;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
 @Repository
 public interface PolicyFilesRepository extends JpaRepository<PolicyFiles, Long> {
+
+    interface ArchiveCandidate {
+        long getPolicyFilesId();
+        String getContentHash();
+        Long getContentSize();
+    }
+
+    interface ExportEntry {
+        long getPolicyFilesId();
+        long getPolicyId();
+        String getPolicyName();
+        String getPolicyVersion();
+        String getFileName();
+        String getContentHash();
+        Long getContentSize();
+        String getCodec();
+        Long getFileSize();
+        Date getLastModifiedDate();
+    }
+
+    @Query("select f.policyFilesId as policyFilesId, f.contentHash as contentHash, f.contentSize as contentSize " +
+            "from PolicyFiles f where f.archived = false and f.contentHash is not null " +
+            "and f.effectiveEndDate < :cutoff and f.policyFilesId > :afterId order by f.policyFilesId")
+    List<ArchiveCandidate> findArchiveCandidates(@Param("cutoff") Date cutoff, @Param("afterId") long afterId,
+                                                 Pageable pageable);
+
+    long countByContentHashAndArchivedFalse(String contentHash);
+
+    @Query("select distinct f.contentHash from PolicyFiles f where f.contentHash in :contentHashes")
+    List<String> findReferencedContentHashes(@Param("contentHashes") Collection<String> contentHashes);
+
+    @Modifying
+    @Query("update PolicyFiles f set f.archived = true where f.policyFilesId = :policyFilesId")
+    int markArchived(@Param("policyFilesId") long policyFilesId);
+
+    @Query("select f.policyFilesId as policyFilesId, p.policyId as policyId, p.policyName as policyName, " +
+            "f.policyVersion as policyVersion, f.fileName as fileName, f.contentHash as contentHash, " +
+            "f.contentSize as contentSize, f.codec as codec, f.fileSize as fileSize, f.lastModifiedDate as lastModifiedDate " +
+            "from PolicyFiles f join f.policy p where p.policyId in :policyIds and f.policyFilesId > :afterId " +
+            "order by f.policyFilesId")
+    List<ExportEntry> findExportEntries(@Param("policyIds") List<Long> policyIds, @Param("afterId") long afterId,
+                                        Pageable pageable);
+
+    @Query("select f.policyFilesId as policyFilesId, p.policyId as policyId, p.policyName as policyName, " +
+            "f.policyVersion as policyVersion, f.fileName as fileName, f.contentHash as contentHash, " +
+            "f.contentSize as contentSize, f.codec as codec, f.fileSize as fileSize, f.lastModifiedDate as lastModifiedDate " +
+            "from PolicyFiles f join f.policy p where f.policyFilesId > :afterId order by f.policyFilesId")
+    List<ExportEntry> findAllExportEntries(@Param("afterId") long afterId, Pageable pageable);
+
+    // Locks the files in id order. A decision takes this lock before touching any reviewer or
+    // approver row of the file, so voters and the round close that moots the other rows queue
+    // on the file instead of deadlocking on each other's rows
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select f from PolicyFiles f where f.policyFilesId in :policyFilesIds order by f.policyFilesId")
+    List<PolicyFiles> lockForDecisions(@Param("policyFilesIds") Collection<Long> policyFilesIds);
+
+    // Tallies one decision under the file lock taken by lockForDecisions. Bulk updates skip
+    // @UpdateTimestamp, so these set the last-modified date that Last-Modified is sent from
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update PolicyFiles f set f.reviewersApproved = f.reviewersApproved + :approved, " +
+            "f.reviewersRejected = f.reviewersRejected + :rejected, f.revision = f.revision + 1, " +
+            "f.lastModifiedDate = CURRENT_TIMESTAMP " +
+            "where f.policyFilesId = :policyFilesId")
+    int addReviewerVote(@Param("policyFilesId") long policyFilesId, @Param("approved") int approved,
+                        @Param("rejected") int rejected);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update PolicyFiles f set f.approversApproved = f.approversApproved + :approved, " +
+            "f.approversRejected = f.approversRejected + :rejected, f.revision = f.revision + 1, " +
+            "f.lastModifiedDate = CURRENT_TIMESTAMP " +
+            "where f.policyFilesId = :policyFilesId")
+    int addApproverVote(@Param("policyFilesId") long policyFilesId, @Param("approved") int approved,
+                        @Param("rejected") int rejected);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update PolicyFiles f set f.reviewersAssigned = f.reviewersAssigned + :reviewers, " +
+            "f.approversAssigned = f.approversAssigned + :approvers, f.revision = f.revision + 1, " +
+            "f.lastModifiedDate = CURRENT_TIMESTAMP " +
+            "where f.policyFilesId in :policyFilesIds")
+    int addAssigned(@Param("policyFilesIds") Collection<Long> policyFilesIds, @Param("reviewers") int reviewers,
+                    @Param("approvers") int approvers);
+
+    // For bulk changes to the decision rows of the files, which their entity never sees
+    @Modifying(flushAutomatically = true)
+    @Query("update PolicyFiles f set f.revision = f.revision + 1, f.lastModifiedDate = CURRENT_TIMESTAMP " +
+            "where f.policyFilesId in :policyFilesIds")
+    int bumpRevision(@Param("policyFilesIds") Collection<Long> policyFilesIds);
+
+    // Recomputes the tallies of the files from the weights of their reviewer and approver rows
+    @Modifying(flushAutomatically = true)
+    @Query("update PolicyFiles f set " +
+            "f.reviewersAssigned = (select coalesce(sum(coalesce(p.weight, 1)), 0) from PolicyApproverAndReviewer p where p.policyFiles = f " +
+            "and p.role = com.example.policy.model.PolicyRole.REVIEWER), " +
+            "f.reviewersApproved = (select coalesce(sum(coalesce(p.weight, 1)), 0) from PolicyApproverAndReviewer p where p.policyFiles = f " +
+            "and p.role = com.example.policy.model.PolicyRole.REVIEWER and p.decided = true and p.isApproved = true), " +
+            "f.reviewersRejected = (select coalesce(sum(coalesce(p.weight, 1)), 0) from PolicyApproverAndReviewer p where p.policyFiles = f " +
+            "and p.role = com.example.policy.model.PolicyRole.REVIEWER and p.decided = true and p.isApproved = false), " +
+            "f.approversAssigned = (select coalesce(sum(coalesce(p.weight, 1)), 0) from PolicyApproverAndReviewer p where p.policyFiles = f " +
+            "and p.role = com.example.policy.model.PolicyRole.APPROVER), " +
+            "f.approversApproved = (select coalesce(sum(coalesce(p.weight, 1)), 0) from PolicyApproverAndReviewer p where p.policyFiles = f " +
+            "and p.role = com.example.policy.model.PolicyRole.APPROVER and p.decided = true and p.isApproved = true), " +
+            "f.approversRejected = (select coalesce(sum(coalesce(p.weight, 1)), 0) from PolicyApproverAndReviewer p where p.policyFiles = f " +
+            "and p.role = com.example.policy.model.PolicyRole.APPROVER and p.decided = true and p.isApproved = false), " +
+            "f.votesCounted = true, f.revision = f.revision + 1, f.lastModifiedDate = CURRENT_TIMESTAMP " +
+            "where f.policyFilesId in :policyFilesIds")
+    int recountVotes(@Param("policyFilesIds") Collection<Long> policyFilesIds);
+
+    @Query("select f.policyFilesId from PolicyFiles f where f.votesCounted = false order by f.policyFilesId")
+    List<Long> findIdsWithoutVoteCounts(Pageable pageable);
 }
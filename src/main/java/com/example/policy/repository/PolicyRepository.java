@@ -2,8 +2,21 @@ package com.example.policy.repository;
 
 import com.example.policy.model.Policy;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+
 @Repository
 public interface PolicyRepository extends JpaRepository<Policy, Long> {
-}
\ No newline at end of file
+
+    // Bumps the revision and last-modified date of the policies owning the files, for bulk changes
+    // to their files or decision rows that the Policy entity never sees. Atomic, so concurrent
+    // voters cannot lose a bump
+    @Modifying(flushAutomatically = true)
+    @Query("update Policy p set p.revision = p.revision + 1, p.lastModifiedDate = CURRENT_TIMESTAMP where p.policyId in " +
+            "(select f.policy.policyId from PolicyFiles f where f.policyFilesId in :policyFilesIds)")
+    int bumpRevisionOfFiles(@Param("policyFilesIds") Collection<Long> policyFilesIds);
+}
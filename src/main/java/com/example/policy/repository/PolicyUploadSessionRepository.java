@@ -0,0 +1,50 @@
+package com.example.policy.repository;
+
+import com.example.policy.model.PolicyUploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface PolicyUploadSessionRepository extends JpaRepository<PolicyUploadSession, String> {
+
+    // Lets one commit of the upload run at a time, on any node; returns 0 if another holds it
+    @Modifying
+    @Query("update PolicyUploadSession u set u.commitStartedDate = :now where u.uploadId = :uploadId " +
+            "and u.policyFilesId is null and (u.commitStartedDate is null or u.commitStartedDate < :staleBefore)")
+    int claimCommit(@Param("uploadId") String uploadId, @Param("now") Date now, @Param("staleBefore") Date staleBefore);
+
+    // Records chunk activity without writing back the rest of the row, which a commit may have
+    // claimed while the chunk was streaming; returns 0 if the upload is committing or committed
+    @Modifying
+    @Query("update PolicyUploadSession u set u.lastModifiedDate = :now where u.uploadId = :uploadId " +
+            "and u.policyFilesId is null and (u.commitStartedDate is null or u.commitStartedDate < :staleBefore)")
+    int touch(@Param("uploadId") String uploadId, @Param("now") Date now, @Param("staleBefore") Date staleBefore);
+
+    @Modifying
+    @Query("update PolicyUploadSession u set u.commitStartedDate = null where u.uploadId = :uploadId and u.policyFilesId is null")
+    int releaseCommit(@Param("uploadId") String uploadId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update PolicyUploadSession u set u.policyFilesId = :policyFilesId, u.lastModifiedDate = :now " +
+            "where u.uploadId = :uploadId")
+    int markCommitted(@Param("uploadId") String uploadId, @Param("policyFilesId") long policyFilesId,
+                      @Param("now") Date now);
+
+    // Sessions untouched since the cutoff that no live commit is working on
+    @Query("select u.uploadId from PolicyUploadSession u where u.lastModifiedDate < :cutoff " +
+            "and (u.commitStartedDate is null or u.commitStartedDate < :staleBefore or u.policyFilesId is not null)")
+    List<String> findExpired(@Param("cutoff") Date cutoff, @Param("staleBefore") Date staleBefore);
+
+    // Deletes the session only if it is still expired, so a chunk that just arrived keeps it
+    @Modifying
+    @Query("delete from PolicyUploadSession u where u.uploadId = :uploadId and u.lastModifiedDate < :cutoff " +
+            "and (u.commitStartedDate is null or u.commitStartedDate < :staleBefore or u.policyFilesId is not null)")
+    int deleteExpired(@Param("uploadId") String uploadId, @Param("cutoff") Date cutoff,
+                      @Param("staleBefore") Date staleBefore);
+}
@@ -0,0 +1,55 @@
+package com.example.policy.service;
+
+import com.example.policy.config.DecisionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a reviewer or approver decision, retrying it when it loses to a concurrent update of
+ * the same rows: a stale @Version, or a lock wait timeout or deadlock reported by the
+ * database. Attempts are bounded and spaced by exponential backoff with full jitter, so
+ * voters colliding on one file spread out instead of colliding again.
+ * The decision must start its own transaction, so a retry sees the other's committed changes.
+ */
+@Slf4j
+@Component
+public class DecisionRetry {
+
+    private final DecisionProperties decisionProperties;
+
+    public DecisionRetry(DecisionProperties decisionProperties) {
+        this.decisionProperties = decisionProperties;
+    }
+
+    public <T> T execute(Supplier<T> decision) {
+        int maxAttempts = Math.max(1, this.decisionProperties.getMaxAttempts());
+        long backoff = Math.max(1, this.decisionProperties.getInitialBackoff().toMillis());
+        long maxBackoff = Math.max(backoff, this.decisionProperties.getMaxBackoff().toMillis());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return decision.get();
+            } catch (OptimisticLockingFailureException | PessimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("Decision still conflicting after {} attempts", attempt);
+                    throw new RuntimeException("Decision conflicted with concurrent updates, please retry", e);
+                }
+                sleep(ThreadLocalRandom.current().nextLong(backoff + 1));
+                backoff = Math.min(maxBackoff, backoff * 2);
+            }
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying decision", e);
+        }
+    }
+}
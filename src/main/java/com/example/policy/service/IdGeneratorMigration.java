@@ -0,0 +1,69 @@
+package com.example.policy.service;
+
+import com.example.policy.model.IdGenerators;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Moves each id generator row past the ids already in its table, so rows created while the
+ * ids were AUTO_INCREMENT keep their ids and new ones never collide with them. Rows are only
+ * ever raised, which makes this safe to run on every start. Runs once the schema is updated
+ * and before the application serves requests.
+ */
+@Slf4j
+@Component
+public class IdGeneratorMigration implements InitializingBean {
+
+    // Generator segment (the table name) to its id column
+    private static final Map<String, String> ID_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        ID_COLUMNS.put("users_new", "user_id");
+        ID_COLUMNS.put("policy", "policy_id");
+        ID_COLUMNS.put("policy_files", "policy_files_id");
+        ID_COLUMNS.put("policy_members", "policy_member_id");
+        ID_COLUMNS.put("policy_approver_and_reviewer", "policy_approver_and_reviewer_id");
+        ID_COLUMNS.put("policy_file_revision", "policy_file_revision_id");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Taking the EntityManagerFactory makes sure the schema update has created the generator table
+    public IdGeneratorMigration(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        for (Map.Entry<String, String> entry : ID_COLUMNS.entrySet()) {
+            String segment = entry.getKey();
+            Long maxId = this.jdbcTemplate.queryForObject(
+                    "select coalesce(max(" + entry.getValue() + "), 0) from " + segment, Long.class);
+            // The pooled optimizer hands out the block ending at the stored value, so the
+            // first block must end a whole allocation past the highest id in use
+            long next = (maxId != null ? maxId : 0) + IdGenerators.ALLOCATION_SIZE;
+
+            int updated = this.jdbcTemplate.update("update " + IdGenerators.TABLE + " set " + IdGenerators.VALUE_COLUMN
+                    + " = ? where " + IdGenerators.SEGMENT_COLUMN + " = ? and " + IdGenerators.VALUE_COLUMN + " < ?",
+                    next, segment, next);
+            if (updated == 0) {
+                Long rows = this.jdbcTemplate.queryForObject("select count(*) from " + IdGenerators.TABLE + " where "
+                        + IdGenerators.SEGMENT_COLUMN + " = ?", Long.class, segment);
+                if (rows == null || rows == 0) {
+                    this.jdbcTemplate.update("insert into " + IdGenerators.TABLE + " (" + IdGenerators.SEGMENT_COLUMN
+                            + ", " + IdGenerators.VALUE_COLUMN + ") values (?, ?)", segment, next);
+                    updated = 1;
+                }
+            }
+            if (updated > 0) {
+                log.info("Id generator {} moved to {} (highest id in use {})", segment, next, maxId);
+            }
+        }
+    }
+}
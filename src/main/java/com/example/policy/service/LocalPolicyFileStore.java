@@ -0,0 +1,154 @@
+package com.example.policy.service;
+
+import com.example.policy.model.StoredContent;
+import com.example.policy.utils.FileUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@Service
+public class LocalPolicyFileStore implements PolicyFileStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+    private final Path tmp;
+    private final PolicyFilePacks policyFilePacks;
+    private final Object[] locks = new Object[64];
+
+    public LocalPolicyFileStore(@Value("${policy.file-store.root}") String root,
+                                PolicyFilePacks policyFilePacks) throws IOException {
+        this.policyFilePacks = policyFilePacks;
+        this.root = Paths.get(root).toAbsolutePath();
+        this.tmp = this.root.resolve("tmp");
+        Files.createDirectories(this.tmp);
+        for (int i = 0; i < this.locks.length; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public StoredContent put(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        Path staging = this.tmp.resolve(UUID.randomUUID() + ".tmp");
+        try {
+            long size;
+            try (DigestInputStream in = new DigestInputStream(content, digest);
+                 OutputStream out = Files.newOutputStream(staging, StandardOpenOption.CREATE_NEW)) {
+                size = in.transferTo(out);
+            }
+            try (FileChannel channel = FileChannel.open(staging, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            Path target = resolve(contentHash);
+            long storedAt = System.currentTimeMillis();
+            boolean created = false;
+            synchronized (lockFor(contentHash)) {
+                if (Files.exists(target)) {
+                    // Same bytes are already stored. Move the copy's time past every earlier put,
+                    // so neither the collector nor a rolled back earlier put removes it
+                    storedAt = Math.max(storedAt, Files.getLastModifiedTime(target).toMillis() + 1);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+                    created = true;
+                }
+                Files.setLastModifiedTime(target, FileTime.fromMillis(storedAt));
+            }
+            return new StoredContent(contentHash, size, storedAt, created);
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    @Override
+    public InputStream open(String contentHash) throws IOException {
+        Path path = resolve(contentHash);
+        if (Files.exists(path)) {
+            try {
+                return FileUtils.channelStream(FileChannel.open(path, StandardOpenOption.READ));
+            } catch (NoSuchFileException e) {
+                // Evicted after the check; fall through to the archive
+            }
+        }
+        return this.policyFilePacks.open(contentHash)
+                .orElseThrow(() -> new FileNotFoundException("Stored content not found: " + contentHash));
+    }
+
+    @Override
+    public boolean exists(String contentHash) {
+        return Files.exists(resolve(contentHash)) || this.policyFilePacks.contains(contentHash);
+    }
+
+    @Override
+    public void evict(String contentHash) throws IOException {
+        Path path = resolve(contentHash);
+        if (!this.policyFilePacks.contains(contentHash)) {
+            throw new IllegalStateException("Content is not archived: " + contentHash);
+        }
+        synchronized (lockFor(contentHash)) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Override
+    public boolean delete(String contentHash, long storedBefore) throws IOException {
+        Path path = resolve(contentHash);
+        synchronized (lockFor(contentHash)) {
+            try {
+                if (Files.getLastModifiedTime(path).toMillis() >= storedBefore) {
+                    return false;
+                }
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+            return Files.deleteIfExists(path);
+        }
+    }
+
+    @Override
+    public Stream<String> listStoredBefore(long storedBefore) throws IOException {
+        return Files.find(this.root, 3, (path, attributes) -> attributes.isRegularFile()
+                        && attributes.lastModifiedTime().toMillis() < storedBefore
+                        && HASH.matcher(path.getFileName().toString()).matches())
+                .map(path -> path.getFileName().toString());
+    }
+
+    // Puts and deletes of the same hash are serialised, so a put never lands on a copy being deleted
+    private Object lockFor(String contentHash) {
+        return this.locks[Math.floorMod(contentHash.hashCode(), this.locks.length)];
+    }
+
+    private Path resolve(String contentHash) {
+        if (contentHash == null || !HASH.matcher(contentHash).matches()) {
+            throw new IllegalArgumentException("Invalid content hash: " + contentHash);
+        }
+        return this.root.resolve(contentHash.substring(0, 2))
+                .resolve(contentHash.substring(2, 4))
+                .resolve(contentHash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
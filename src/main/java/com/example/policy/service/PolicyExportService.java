@@ -0,0 +1,9 @@
+package com.example.policy.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface PolicyExportService {
+    void exportPolicyFiles(List<Long> policyIds, OutputStream out) throws IOException;
+}
@@ -0,0 +1,96 @@
+package com.example.policy.service;
+
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.repository.PolicyFilesRepository;
+import com.example.policy.utils.DeflateCodec;
+import com.example.policy.utils.PolicyFileCodec;
+import com.example.policy.utils.PolicyFileCodecs;
+import com.example.policy.utils.StoreCodec;
+import com.example.policy.utils.ZipStreamWriter;
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Streams the files of a set of policies (all policies when none are given) as one ZIP.
+ * Files are read one at a time through the file store. Deflate-coded content goes into
+ * the archive without being compressed again, stored content goes in uncompressed, and
+ * other codecs are decoded and deflated.
+ */
+@Service
+@AllArgsConstructor
+public class PolicyExportServiceImpl implements PolicyExportService {
+
+    private static final int PAGE_SIZE = 500;
+
+    private PolicyFilesRepository policyFilesRepository;
+    private PolicyService policyService;
+    private EntityManager entityManager;
+
+    @Override
+    public void exportPolicyFiles(List<Long> policyIds, OutputStream out) throws IOException {
+        boolean all = policyIds == null || policyIds.isEmpty();
+        try (ZipStreamWriter zip = new ZipStreamWriter(out)) {
+            long afterId = 0;
+            while (true) {
+                List<PolicyFilesRepository.ExportEntry> page = all
+                        ? this.policyFilesRepository.findAllExportEntries(afterId, PageRequest.of(0, PAGE_SIZE))
+                        : this.policyFilesRepository.findExportEntries(policyIds, afterId, PageRequest.of(0, PAGE_SIZE));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (PolicyFilesRepository.ExportEntry entry : page) {
+                    writeEntry(zip, entry);
+                    afterId = entry.getPolicyFilesId();
+                    // Legacy blobs are loaded as entities; keep them from piling up in the persistence context
+                    this.entityManager.clear();
+                }
+            }
+        }
+    }
+
+    private void writeEntry(ZipStreamWriter zip, PolicyFilesRepository.ExportEntry entry) throws IOException {
+        PolicyFiles policyFile = new PolicyFiles();
+        policyFile.setPolicyFilesId(entry.getPolicyFilesId());
+        policyFile.setFileName(entry.getFileName());
+        policyFile.setContentHash(entry.getContentHash());
+        policyFile.setContentSize(entry.getContentSize());
+        policyFile.setCodec(entry.getCodec());
+        policyFile.setFileSize(entry.getFileSize());
+        Resource stored = this.policyService.getPolicyFileResource(policyFile, false);
+
+        String name = entryName(entry);
+        PolicyFileCodec codec = PolicyFileCodecs.forId(entry.getCodec());
+        if (DeflateCodec.ID.equals(codec.getId())) {
+            try (InputStream in = stored.getInputStream()) {
+                zip.putZlibEntry(name, entry.getLastModifiedDate(), in);
+            }
+        } else if (StoreCodec.ID.equals(codec.getId())) {
+            zip.putStoredEntry(name, entry.getLastModifiedDate(), stored);
+        } else {
+            try (InputStream in = codec.decode(stored.getInputStream())) {
+                zip.putEntry(name, entry.getLastModifiedDate(), in);
+            }
+        }
+    }
+
+    private static String entryName(PolicyFilesRepository.ExportEntry entry) {
+        String folder = "policy-" + entry.getPolicyId()
+                + (entry.getPolicyName() != null ? "-" + safe(entry.getPolicyName()) : "");
+        String file = entry.getPolicyFilesId()
+                + (entry.getPolicyVersion() != null ? "-" + safe(entry.getPolicyVersion()) : "")
+                + "-" + (entry.getFileName() != null ? safe(entry.getFileName()) : "file");
+        return folder + "/" + file;
+    }
+
+    private static String safe(String name) {
+        return name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_");
+    }
+}
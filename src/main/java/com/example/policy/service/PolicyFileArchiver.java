@@ -0,0 +1,107 @@
+package com.example.policy.service;
+
+import com.example.policy.config.ArchiveProperties;
+import com.example.policy.repository.PolicyFilesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Moves the content of expired policy files to the cold tier. Runs in batches of
+ * {@code policy.archive.batch-size} with a pause between them. Content is appended to a pack
+ * segment, and the hot copy is removed once no unexpired file uses it any more,
+ * after the transaction recording the pack entry has committed.
+ * Reads go through the PolicyFileStore, which finds archived content in the packs.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "policy.archive.enabled", havingValue = "true")
+public class PolicyFileArchiver {
+
+    private final PolicyFilesRepository policyFilesRepository;
+    private final PolicyFileStore policyFileStore;
+    private final PolicyFilePacks policyFilePacks;
+    private final ArchiveProperties archiveProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    public PolicyFileArchiver(PolicyFilesRepository policyFilesRepository, PolicyFileStore policyFileStore,
+                              PolicyFilePacks policyFilePacks, ArchiveProperties archiveProperties,
+                              PlatformTransactionManager transactionManager) {
+        this.policyFilesRepository = policyFilesRepository;
+        this.policyFileStore = policyFileStore;
+        this.policyFilePacks = policyFilePacks;
+        this.archiveProperties = archiveProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${policy.archive.interval:PT1H}", initialDelayString = "${policy.archive.initial-delay:PT5M}")
+    public void archiveExpired() {
+        Date cutoff = new Date(System.currentTimeMillis() - this.archiveProperties.getMinAge().toMillis());
+        long afterId = 0;
+        int archived = 0;
+        for (int batch = 0; batch < this.archiveProperties.getMaxBatchesPerRun(); batch++) {
+            List<PolicyFilesRepository.ArchiveCandidate> candidates = this.policyFilesRepository.findArchiveCandidates(
+                    cutoff, afterId, PageRequest.of(0, this.archiveProperties.getBatchSize()));
+            if (candidates.isEmpty()) {
+                break;
+            }
+            for (PolicyFilesRepository.ArchiveCandidate candidate : candidates) {
+                afterId = candidate.getPolicyFilesId();
+                try {
+                    this.transactionTemplate.executeWithoutResult(status -> archive(candidate));
+                    archived++;
+                } catch (RuntimeException e) {
+                    log.error("Failed to archive policy file {}: {}", candidate.getPolicyFilesId(), e.getMessage());
+                    continue;
+                }
+                evictIfUnused(candidate.getContentHash());
+            }
+            try {
+                Thread.sleep(this.archiveProperties.getBatchPause().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived {} expired policy files", archived);
+        }
+    }
+
+    // Only once the pack entry is committed may the hot copy go; if this fails the copy stays hot
+    private void evictIfUnused(String contentHash) {
+        try {
+            if (this.policyFilesRepository.countByContentHashAndArchivedFalse(contentHash) == 0) {
+                this.policyFileStore.evict(contentHash);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not evict archived content {}: {}", contentHash, e.getMessage());
+        }
+    }
+
+    private void archive(PolicyFilesRepository.ArchiveCandidate candidate) {
+        String contentHash = candidate.getContentHash();
+        try {
+            // Content shared with an already archived file is in the packs once
+            if (!this.policyFilePacks.contains(contentHash)) {
+                try (InputStream content = this.policyFileStore.open(contentHash)) {
+                    this.policyFilePacks.append(contentHash, candidate.getContentSize(), content,
+                            candidate.getPolicyFilesId());
+                }
+            }
+            this.policyFilesRepository.markArchived(candidate.getPolicyFilesId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
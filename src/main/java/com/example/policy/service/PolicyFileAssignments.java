@@ -0,0 +1,87 @@
+package com.example.policy.service;
+
+import com.example.policy.model.PolicyApproverAndReviewer;
+import com.example.policy.model.PolicyRole;
+import com.example.policy.repository.PolicyApproverAndReviewerRepository;
+import com.example.policy.repository.PolicyFilesRepository;
+import com.example.policy.repository.PolicyRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Fans reviewer and approver members out to the files of their policy. Each direction finds
+ * the missing (user, file, role) rows with one query and saves them with one saveAll, which
+ * Hibernate sends as JDBC batches, and keeps the assigned tallies of the files in step.
+ * Must run in a transaction.
+ */
+@Component
+@AllArgsConstructor
+public class PolicyFileAssignments {
+
+    private PolicyApproverAndReviewerRepository policyApproverAndReviewerRepository;
+    private PolicyRepository policyRepository;
+    private PolicyFilesRepository policyFilesRepository;
+
+    /**
+     * Assigns every reviewer and approver of the policy to newly added files. Callers bump the
+     * policy revision for the files they add
+     * @return number of rows created
+     */
+    public int assignMembers(Collection<Long> policyFilesIds) {
+        if (policyFilesIds.isEmpty()) {
+            return 0;
+        }
+        List<PolicyApproverAndReviewer> records = new ArrayList<>();
+        for (PolicyApproverAndReviewerRepository.MissingAssignment missing
+                : this.policyApproverAndReviewerRepository.findMissingForFiles(policyFilesIds)) {
+            records.add(newRecord(missing.getPolicyId(), missing.getPolicyFilesId(), missing.getUserId(), missing.getRole(),
+                    missing.getWeight()));
+        }
+        this.policyApproverAndReviewerRepository.saveAll(records);
+        // The files are new, so counting their rows gives the starting tallies
+        this.policyFilesRepository.recountVotes(policyFilesIds);
+        return records.size();
+    }
+
+    /**
+     * Assigns a new reviewer or approver to the files of the policy still waiting on that role
+     * @return number of rows created
+     */
+    public int assignFiles(long policyId, long userId, PolicyRole role, Integer weight) {
+        if (role != PolicyRole.REVIEWER && role != PolicyRole.APPROVER) {
+            return 0;
+        }
+        List<Long> policyFilesIds = this.policyApproverAndReviewerRepository.findMissingForMember(policyId, userId, role);
+        if (policyFilesIds.isEmpty()) {
+            return 0;
+        }
+        List<PolicyApproverAndReviewer> records = new ArrayList<>(policyFilesIds.size());
+        for (Long policyFilesId : policyFilesIds) {
+            records.add(newRecord(policyId, policyFilesId, userId, role, weight));
+        }
+        this.policyApproverAndReviewerRepository.saveAll(records);
+        int votes = weight != null ? weight : 1;
+        this.policyFilesRepository.addAssigned(policyFilesIds, role == PolicyRole.REVIEWER ? votes : 0,
+                role == PolicyRole.APPROVER ? votes : 0);
+        // The new rows show in the policy's file list
+        this.policyRepository.bumpRevisionOfFiles(policyFilesIds);
+        return records.size();
+    }
+
+    private PolicyApproverAndReviewer newRecord(long policyId, long policyFilesId, long userId, PolicyRole role,
+                                                Integer weight) {
+        PolicyApproverAndReviewer record = new PolicyApproverAndReviewer();
+        record.setUserId(userId);
+        record.setRole(role);
+        record.setPolicy(this.policyRepository.getReferenceById(policyId));
+        record.setPolicyFiles(this.policyFilesRepository.getReferenceById(policyFilesId));
+        record.setApproved(false);
+        record.setRejectedReason(null);
+        record.setWeight(weight);
+        return record;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.policy.service;
+
+import com.example.policy.config.FileCacheProperties;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Byte-budgeted LRU cache of decoded policy file content, keyed by policyFilesId and checked
+ * against the stored content hash so a replaced file is never served stale. Entries live in
+ * direct buffers, outside the Java heap. Concurrent misses on the same file share one load.
+ */
+@Component
+public class PolicyFileCache {
+
+    private final long maxSize;
+    private final long maxEntrySize;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // Loads in progress, keyed by file and version; later callers wait for the first one
+    private final ConcurrentHashMap<String, CompletableFuture<ByteBuffer>> loading = new ConcurrentHashMap<>();
+
+    public PolicyFileCache(FileCacheProperties properties) {
+        this.maxSize = properties.getMaxSize().toBytes();
+        this.maxEntrySize = properties.getMaxEntrySize().toBytes();
+    }
+
+    /** Whether content of this size is worth caching at all. */
+    public boolean accepts(Long contentLength) {
+        return contentLength != null && contentLength <= this.maxEntrySize && contentLength <= this.maxSize;
+    }
+
+    /** Returns a read-only view of the cached content, or null on a miss. */
+    public synchronized ByteBuffer get(long policyFilesId, String version) {
+        Entry entry = this.entries.get(policyFilesId);
+        if (entry == null || !entry.version.equals(version)) {
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        return entry.content.asReadOnlyBuffer();
+    }
+
+    /**
+     * Reads {@code content} fully into a direct buffer and caches it. If the same file and
+     * version is already being loaded, waits for that load instead of opening the content again.
+     * @return a read-only view of the cached content
+     */
+    public ByteBuffer load(long policyFilesId, String version, long contentLength, InputStreamSource content)
+            throws IOException {
+        String key = policyFilesId + ":" + version;
+        CompletableFuture<ByteBuffer> load = new CompletableFuture<>();
+        CompletableFuture<ByteBuffer> running = this.loading.putIfAbsent(key, load);
+        if (running != null) {
+            return await(running).asReadOnlyBuffer();
+        }
+        try {
+            // A load that finished after the caller's miss has already cached the content
+            ByteBuffer buffer = cached(policyFilesId, version);
+            if (buffer == null) {
+                buffer = read(contentLength, content);
+                put(policyFilesId, version, buffer);
+            }
+            load.complete(buffer);
+            return buffer.asReadOnlyBuffer();
+        } catch (IOException | RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.loading.remove(key, load);
+        }
+    }
+
+    public synchronized void invalidate(long policyFilesId) {
+        Entry removed = this.entries.remove(policyFilesId);
+        if (removed != null) {
+            this.size -= removed.content.capacity();
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", this.entries.size());
+        stats.put("sizeBytes", this.size);
+        stats.put("maxSizeBytes", this.maxSize);
+        stats.put("hits", this.hits);
+        stats.put("misses", this.misses);
+        stats.put("evictions", this.evictions);
+        long requests = this.hits + this.misses;
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) this.hits / requests);
+        return stats;
+    }
+
+    private static ByteBuffer read(long contentLength, InputStreamSource content) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) contentLength);
+        try (ReadableByteChannel channel = Channels.newChannel(content.getInputStream())) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Policy file content is shorter than its recorded size");
+                }
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer await(CompletableFuture<ByteBuffer> load) throws IOException {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for policy file content");
+        } catch (ExecutionException e) {
+            // Each waiter gets its own exception, with the loader's failure as the cause
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IOException("Loading policy file content failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private synchronized ByteBuffer cached(long policyFilesId, String version) {
+        Entry entry = this.entries.get(policyFilesId);
+        return entry != null && entry.version.equals(version) ? entry.content : null;
+    }
+
+    private synchronized void put(long policyFilesId, String version, ByteBuffer content) {
+        invalidate(policyFilesId);
+        Iterator<Entry> eldest = this.entries.values().iterator();
+        while (this.size + content.capacity() > this.maxSize && eldest.hasNext()) {
+            this.size -= eldest.next().content.capacity();
+            eldest.remove();
+            this.evictions++;
+        }
+        this.entries.put(policyFilesId, new Entry(version, content));
+        this.size += content.capacity();
+    }
+
+    private static class Entry {
+        private final String version;
+        private final ByteBuffer content;
+
+        private Entry(String version, ByteBuffer content) {
+            this.version = version;
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.policy.service;
+
+import com.example.policy.config.HistoryProperties;
+import com.example.policy.model.PolicyFileRevision;
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.model.StoredContent;
+import com.example.policy.repository.PolicyFileContentRepository;
+import com.example.policy.repository.PolicyFileRevisionRepository;
+import com.example.policy.utils.BinaryDelta;
+import com.example.policy.utils.DeflateCodec;
+import com.example.policy.utils.FileUtils;
+import com.example.policy.utils.PolicyFileCodecs;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Append-only revision chain of each policy file. Revisions are stored as deflated binary
+ * deltas against the revision before, with a full snapshot every
+ * {@code policy.history.snapshot-interval} revisions. Snapshots reference the same stored
+ * content as the file itself, so they cost no extra space.
+ */
+@Component
+@AllArgsConstructor
+public class PolicyFileHistory {
+
+    private PolicyFileRevisionRepository policyFileRevisionRepository;
+    private PolicyFileStore policyFileStore;
+    private PolicyFileContentRepository policyFileContentRepository;
+    private PolicyFileCache policyFileCache;
+    private HistoryProperties historyProperties;
+    private PolicyFileStoreCollector policyFileStoreCollector;
+
+    /**
+     * Records the current content of a file as its first revision, unless it already has a history
+     */
+    public void recordBaseline(PolicyFiles policyFile) throws IOException {
+        if (this.policyFileRevisionRepository.findTopByPolicyFilesIdOrderByRevisionNumberDesc(
+                policyFile.getPolicyFilesId()).isPresent()) {
+            return;
+        }
+        PolicyFileRevision revision = newRevision(policyFile, 1, PolicyFileRevision.Kind.SNAPSHOT);
+        if (policyFile.getContentHash() == null) {
+            // Content still in the legacy blob column; copy it to the store before it is replaced
+            try (InputStream stored = new PolicyFileResource(policyFile, this.policyFileStore,
+                    this.policyFileContentRepository, this.policyFileCache, false).getInputStream()) {
+                StoredContent content = this.policyFileStore.put(stored);
+                this.policyFileStoreCollector.discardOnRollback(content);
+                revision.setContentHash(content.getContentHash());
+                revision.setContentSize(content.getContentSize());
+            }
+        }
+        this.policyFileRevisionRepository.save(revision);
+    }
+
+    /**
+     * Records revision 1 for files that were just created, in one batch
+     */
+    public void recordNewFiles(List<PolicyFiles> policyFiles) {
+        List<PolicyFileRevision> revisions = new ArrayList<>(policyFiles.size());
+        for (PolicyFiles policyFile : policyFiles) {
+            revisions.add(newRevision(policyFile, 1, PolicyFileRevision.Kind.SNAPSHOT));
+        }
+        this.policyFileRevisionRepository.saveAll(revisions);
+    }
+
+    /**
+     * Appends the content the file now has as its next revision
+     */
+    public void recordRevision(PolicyFiles policyFile) throws IOException {
+        PolicyFileRevision last = this.policyFileRevisionRepository
+                .findTopByPolicyFilesIdOrderByRevisionNumberDesc(policyFile.getPolicyFilesId())
+                .orElse(null);
+        if (last == null) {
+            recordBaseline(policyFile);
+            return;
+        }
+
+        int number = last.getRevisionNumber() + 1;
+        long maxDeltaSize = this.historyProperties.getMaxDeltaSize().toBytes();
+        boolean snapshot = (number - 1) % this.historyProperties.getSnapshotInterval() == 0
+                || policyFile.getFileSize() == null || policyFile.getFileSize() > maxDeltaSize
+                || last.getFileSize() == null || last.getFileSize() > maxDeltaSize;
+
+        if (!snapshot) {
+            byte[] base = readRevision(last);
+            byte[] target;
+            try (InputStream content = PolicyFileCodecs.forId(policyFile.getCodec())
+                    .decode(this.policyFileStore.open(policyFile.getContentHash()))) {
+                target = content.readAllBytes();
+            }
+            byte[] delta = FileUtils.compressFile(BinaryDelta.encode(base, target));
+            // Keep a snapshot when the delta saves nothing, e.g. after a complete rewrite
+            if (delta.length < policyFile.getContentSize()) {
+                PolicyFileRevision revision = newRevision(policyFile, number, PolicyFileRevision.Kind.DELTA);
+                StoredContent stored = this.policyFileStore.put(new ByteArrayInputStream(delta));
+                this.policyFileStoreCollector.discardOnRollback(stored);
+                revision.setContentHash(stored.getContentHash());
+                revision.setContentSize(stored.getContentSize());
+                revision.setCodec(DeflateCodec.ID);
+                this.policyFileRevisionRepository.save(revision);
+                return;
+            }
+        }
+        this.policyFileRevisionRepository.save(newRevision(policyFile, number, PolicyFileRevision.Kind.SNAPSHOT));
+    }
+
+    public List<PolicyFileRevision> getRevisions(long policyFilesId) {
+        return this.policyFileRevisionRepository.findByPolicyFilesIdOrderByRevisionNumberAsc(policyFilesId);
+    }
+
+    public PolicyFileRevision getRevision(long policyFilesId, int revisionNumber) {
+        return this.policyFileRevisionRepository.findByPolicyFilesIdAndRevisionNumber(policyFilesId, revisionNumber)
+                .orElseThrow(() -> new RuntimeException("Revision " + revisionNumber + " not found for policy file " + policyFilesId));
+    }
+
+    /**
+     * Opens the decoded content of a revision. Snapshots are streamed; deltas are rebuilt
+     * from the nearest snapshot before them.
+     */
+    public InputStream openRevision(PolicyFileRevision revision) throws IOException {
+        if (revision.getKind() == PolicyFileRevision.Kind.SNAPSHOT) {
+            return openContent(revision);
+        }
+        return new ByteArrayInputStream(readRevision(revision));
+    }
+
+    private byte[] readRevision(PolicyFileRevision revision) throws IOException {
+        PolicyFileRevision snapshot = this.policyFileRevisionRepository
+                .findTopByPolicyFilesIdAndKindAndRevisionNumberLessThanEqualOrderByRevisionNumberDesc(
+                        revision.getPolicyFilesId(), PolicyFileRevision.Kind.SNAPSHOT, revision.getRevisionNumber())
+                .orElseThrow(() -> new RuntimeException("No snapshot found for revision " + revision.getRevisionNumber()));
+        byte[] content;
+        try (InputStream in = openContent(snapshot)) {
+            content = in.readAllBytes();
+        }
+        if (snapshot.getRevisionNumber() == revision.getRevisionNumber()) {
+            return content;
+        }
+        for (PolicyFileRevision delta : this.policyFileRevisionRepository
+                .findByPolicyFilesIdAndRevisionNumberBetweenOrderByRevisionNumberAsc(revision.getPolicyFilesId(),
+                        snapshot.getRevisionNumber() + 1, revision.getRevisionNumber())) {
+            try (InputStream in = openContent(delta)) {
+                content = BinaryDelta.apply(content, in.readAllBytes());
+            }
+        }
+        return content;
+    }
+
+    private InputStream openContent(PolicyFileRevision revision) throws IOException {
+        return PolicyFileCodecs.forId(revision.getCodec()).decode(this.policyFileStore.open(revision.getContentHash()));
+    }
+
+    private PolicyFileRevision newRevision(PolicyFiles policyFile, int number, PolicyFileRevision.Kind kind) {
+        PolicyFileRevision revision = new PolicyFileRevision();
+        revision.setPolicyFilesId(policyFile.getPolicyFilesId());
+        revision.setRevisionNumber(number);
+        revision.setKind(kind);
+        revision.setContentHash(policyFile.getContentHash());
+        revision.setContentSize(policyFile.getContentSize());
+        revision.setCodec(policyFile.getCodec());
+        revision.setFileSize(policyFile.getFileSize());
+        revision.setFileName(policyFile.getFileName());
+        revision.setFileType(policyFile.getFileType());
+        revision.setPolicyVersion(policyFile.getPolicyVersion());
+        revision.setCreatedDate(new Date());
+        return revision;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.policy.service;
+
+import com.example.policy.config.ArchiveProperties;
+import com.example.policy.model.PolicyFilePackEntry;
+import com.example.policy.repository.PolicyFilePackEntryRepository;
+import com.example.policy.utils.FileUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Date;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier of the file store: append-only pack segments under {@code <root>/packs}.
+ * Each entry is written as {@code [content hash, 64 ASCII bytes][length, 8 bytes][content]},
+ * so the index could be rebuilt from the segments alone. Nodes sharing the store root append
+ * under a lock on the segment file, so the root must be on a filesystem that honours
+ * {@link FileChannel#lock()} across hosts.
+ */
+@Component
+public class PolicyFilePacks {
+
+    private static final int HEADER_LENGTH = 64 + Long.BYTES;
+
+    // File locks are held for the whole JVM and an overlapping request from it throws rather
+    // than waits, so appends within this JVM queue here before taking the file lock
+    private static final Object APPENDING = new Object();
+
+    private final PolicyFilePackEntryRepository policyFilePackEntryRepository;
+    private final ArchiveProperties archiveProperties;
+    private final Path packs;
+    private int segment;
+
+    public PolicyFilePacks(PolicyFilePackEntryRepository policyFilePackEntryRepository,
+                           ArchiveProperties archiveProperties,
+                           @Value("${policy.file-store.root}") String root) throws IOException {
+        this.policyFilePackEntryRepository = policyFilePackEntryRepository;
+        this.archiveProperties = archiveProperties;
+        this.packs = Paths.get(root).toAbsolutePath().resolve("packs");
+        Files.createDirectories(this.packs);
+        try (Stream<Path> segments = Files.list(this.packs)) {
+            this.segment = segments.map(path -> path.getFileName().toString())
+                    .filter(name -> name.matches("pack-\\d+\\.pack"))
+                    .mapToInt(name -> Integer.parseInt(name.substring(5, name.length() - 5)))
+                    .max().orElse(1);
+        }
+    }
+
+    public boolean contains(String contentHash) {
+        return this.policyFilePackEntryRepository.existsById(contentHash);
+    }
+
+    /**
+     * Opens archived content, if the content hash has been archived
+     */
+    public Optional<InputStream> open(String contentHash) throws IOException {
+        Optional<PolicyFilePackEntry> entry = this.policyFilePackEntryRepository.findById(contentHash);
+        if (entry.isEmpty()) {
+            return Optional.empty();
+        }
+        FileChannel channel = FileChannel.open(segmentPath(entry.get().getSegment()), StandardOpenOption.READ);
+        return Optional.of(FileUtils.channelStream(channel, entry.get().getOffset(), entry.get().getLength()));
+    }
+
+    /**
+     * Appends {@code length} bytes of content to the current segment, syncs it and records it
+     * in the index. Appends hold an exclusive lock on the segment and take its end from the
+     * locked channel, so segments are only ever written at their end, by one node at a time.
+     */
+    public PolicyFilePackEntry append(String contentHash, long length, InputStream content,
+                                      Long policyFilesId) throws IOException {
+        synchronized (APPENDING) {
+            while (true) {
+                PolicyFilePackEntry entry = appendToSegment(contentHash, length, content, policyFilesId);
+                if (entry != null) {
+                    return entry;
+                }
+                // Full, possibly filled by another node since this one last looked
+                this.segment++;
+            }
+        }
+    }
+
+    // Returns null, having written nothing, if the entry does not fit in the current segment
+    private PolicyFilePackEntry appendToSegment(String contentHash, long length, InputStream content,
+                                                Long policyFilesId) throws IOException {
+        int segment = this.segment;
+        long offset;
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            // Released when the channel closes, after the content is synced
+            channel.lock();
+            long start = channel.size();
+            if (start > 0 && start + HEADER_LENGTH + length > this.archiveProperties.getSegmentSize().toBytes()) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.put(contentHash.getBytes(StandardCharsets.US_ASCII)).putLong(length).flip();
+            channel.position(start);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            offset = start + HEADER_LENGTH;
+            long written = channel.transferFrom(Channels.newChannel(content), offset, length);
+            if (written != length) {
+                // Leave the segment as it was; the partial entry is cut off
+                channel.truncate(start);
+                throw new EOFException("Content ended after " + written + " of " + length + " bytes");
+            }
+            channel.force(true);
+        }
+
+        PolicyFilePackEntry entry = new PolicyFilePackEntry(contentHash, segment, offset, length,
+                policyFilesId, new Date());
+        return this.policyFilePackEntryRepository.save(entry);
+    }
+
+    private Path segmentPath(int segment) {
+        return this.packs.resolve(String.format("pack-%06d.pack", segment));
+    }
+}
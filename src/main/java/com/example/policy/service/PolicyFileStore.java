@@ -0,0 +1,42 @@
+package com.example.policy.service;
+
+import com.example.policy.model.StoredContent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.stream.Stream;
+
+/**
+ * Storage for encoded policy file content, addressed by the SHA-256 of the stored bytes.
+ * Identical content is stored once no matter how many policy files reference it.
+ * Content may live in the hot tier or in archived pack segments; reads find it in either.
+ * <p>
+ * The hash is taken over the encoded bytes, so a stored copy can be verified against its
+ * name without decoding it, and revision deltas share the store with the files. The
+ * trade-off is that the same document stored under two codecs is kept twice; this only
+ * happens when the codec for its content type is changed.
+ * <p>
+ * Nothing here tracks references; content no policy file or revision uses any more is
+ * removed by the PolicyFileStoreCollector.
+ */
+public interface PolicyFileStore {
+    StoredContent put(InputStream content) throws IOException;
+
+    /** Opens stored content. The stream seeks on skip and copies with FileChannel.transferTo. */
+    InputStream open(String contentHash) throws IOException;
+    boolean exists(String contentHash);
+
+    /** Removes the hot copy of content that has been archived. */
+    void evict(String contentHash) throws IOException;
+
+    /**
+     * Removes the hot copy of content unless it was stored again after {@code storedBefore}
+     * (epoch millis), e.g. by an upload of the same bytes that is not committed yet.
+     * The caller checks that nothing references the content.
+     * @return true if the copy was removed
+     */
+    boolean delete(String contentHash, long storedBefore) throws IOException;
+
+    /** Hashes of the hot copies last stored before {@code storedBefore}; close the stream. */
+    Stream<String> listStoredBefore(long storedBefore) throws IOException;
+}
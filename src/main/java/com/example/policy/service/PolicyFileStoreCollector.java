@@ -0,0 +1,107 @@
+package com.example.policy.service;
+
+import com.example.policy.config.FileStoreProperties;
+import com.example.policy.model.StoredContent;
+import com.example.policy.repository.PolicyFileRevisionRepository;
+import com.example.policy.repository.PolicyFilesRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Removes stored content that no policy file or revision references: copies written by a
+ * transaction that rolled back, and content replaced before revisions were kept. A copy is
+ * only removed if no put has stored the same bytes since, so content that an upload still
+ * in progress is about to reference is never taken away from it.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class PolicyFileStoreCollector {
+
+    private PolicyFileStore policyFileStore;
+    private PolicyFilesRepository policyFilesRepository;
+    private PolicyFileRevisionRepository policyFileRevisionRepository;
+    private FileStoreProperties fileStoreProperties;
+
+    /**
+     * Removes content written for rows that were never saved. Copies that were already in the
+     * store before, or that another put has stored since, are kept.
+     */
+    public void discard(Collection<StoredContent> stored) {
+        for (StoredContent content : stored) {
+            if (!content.isCreated()) {
+                continue;
+            }
+            try {
+                if (unreferenced(List.of(content.getContentHash())).isEmpty()) {
+                    continue;
+                }
+                this.policyFileStore.delete(content.getContentHash(), content.getStoredAt() + 1);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not discard stored content {}: {}", content.getContentHash(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Discards the content if the surrounding transaction, if any, rolls back
+     */
+    public void discardOnRollback(StoredContent stored) {
+        if (!stored.isCreated() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    discard(List.of(stored));
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${policy.file-store.gc-interval:PT6H}",
+            initialDelayString = "${policy.file-store.gc-initial-delay:PT10M}")
+    public void collect() {
+        if (!this.fileStoreProperties.isGcEnabled()) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - this.fileStoreProperties.getGcGrace().toMillis();
+        int batchSize = Math.max(1, this.fileStoreProperties.getGcBatchSize());
+        int removed = 0;
+        try (Stream<String> hashes = this.policyFileStore.listStoredBefore(cutoff)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            for (Iterator<String> it = hashes.iterator(); it.hasNext(); ) {
+                batch.add(it.next());
+                if (batch.size() == batchSize || !it.hasNext()) {
+                    for (String contentHash : unreferenced(batch)) {
+                        if (this.policyFileStore.delete(contentHash, cutoff)) {
+                            removed++;
+                        }
+                    }
+                    batch.clear();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Collecting unreferenced stored content failed", e);
+        }
+        if (removed > 0) {
+            log.info("Removed {} unreferenced stored files", removed);
+        }
+    }
+
+    private Set<String> unreferenced(List<String> contentHashes) {
+        Set<String> unreferenced = new HashSet<>(contentHashes);
+        unreferenced.removeAll(this.policyFilesRepository.findReferencedContentHashes(contentHashes));
+        unreferenced.removeAll(this.policyFileRevisionRepository.findReferencedContentHashes(contentHashes));
+        return unreferenced;
+    }
+}
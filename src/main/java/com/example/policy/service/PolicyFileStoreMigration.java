@@ -0,0 +1,100 @@
+package com.example.policy.service;
+
+import com.example.policy.model.PolicyFileContent;
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.model.StoredContent;
+import com.example.policy.repository.PolicyFileContentRepository;
+import com.example.policy.repository.PolicyFilesRepository;
+import com.example.policy.utils.DeflateCodec;
+import com.example.policy.utils.PolicyFileCodecs;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Moves file content still held in the policy_files LONGBLOB column into the PolicyFileStore.
+ * Enabled with {@code policy.file-store.migrate-legacy-blobs=true}; each row is migrated in
+ * its own transaction so the job can be stopped and restarted at any point.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "policy.file-store.migrate-legacy-blobs", havingValue = "true")
+public class PolicyFileStoreMigration implements ApplicationRunner {
+
+    private final PolicyFilesRepository policyFilesRepository;
+    private final PolicyFileContentRepository policyFileContentRepository;
+    private final PolicyFileStore policyFileStore;
+    private final PolicyFileStoreCollector policyFileStoreCollector;
+    private final TransactionTemplate transactionTemplate;
+
+    public PolicyFileStoreMigration(PolicyFilesRepository policyFilesRepository,
+                                    PolicyFileContentRepository policyFileContentRepository,
+                                    PolicyFileStore policyFileStore, PolicyFileStoreCollector policyFileStoreCollector,
+                                    PlatformTransactionManager transactionManager) {
+        this.policyFilesRepository = policyFilesRepository;
+        this.policyFileContentRepository = policyFileContentRepository;
+        this.policyFileStore = policyFileStore;
+        this.policyFileStoreCollector = policyFileStoreCollector;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<Long> ids = this.policyFileContentRepository.findIdsWithLegacyContent();
+        log.info("Migrating {} policy files to the file store", ids.size());
+
+        int migrated = 0;
+        for (Long id : ids) {
+            try {
+                this.transactionTemplate.executeWithoutResult(status -> migrate(id));
+                migrated++;
+            } catch (RuntimeException e) {
+                log.error("Failed to migrate policy file {}: {}", id, e.getMessage());
+            }
+        }
+        log.info("Migrated {} of {} policy files to the file store", migrated, ids.size());
+    }
+
+    private void migrate(Long policyFilesId) {
+        PolicyFiles policyFile = this.policyFilesRepository.findById(policyFilesId)
+                .orElseThrow(() -> new RuntimeException("Policy file not found with id: " + policyFilesId));
+        PolicyFileContent content = this.policyFileContentRepository.findById(policyFilesId)
+                .orElseThrow(() -> new RuntimeException("Policy file not found with id: " + policyFilesId));
+        if (content.getFile() == null) {
+            return;
+        }
+
+        try {
+            StoredContent stored;
+            try (InputStream legacy = content.getFile().getBinaryStream()) {
+                // Legacy blobs were written by FileUtils.compressFile, so they are stored as-is
+                stored = this.policyFileStore.put(legacy);
+            }
+            this.policyFileStoreCollector.discardOnRollback(stored);
+            long fileSize;
+            try (InputStream migrated = PolicyFileCodecs.forId(DeflateCodec.ID).decode(this.policyFileStore.open(stored.getContentHash()))) {
+                fileSize = migrated.transferTo(OutputStream.nullOutputStream());
+            }
+
+            policyFile.setContentHash(stored.getContentHash());
+            policyFile.setContentSize(stored.getContentSize());
+            policyFile.setCodec(DeflateCodec.ID);
+            policyFile.setFileSize(fileSize);
+            this.policyFilesRepository.save(policyFile);
+            content.setFile(null);
+            this.policyFileContentRepository.save(content);
+        } catch (IOException | SQLException e) {
+            throw new RuntimeException("Error migrating policy file " + policyFilesId + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.policy.service;
+
+import com.example.policy.config.FileLimitProperties;
+import com.example.policy.utils.FileFormats;
+import lombok.AllArgsConstructor;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Cheap checks run before an upload is compressed or stored: the per-type size limit and
+ * the magic bytes at the start of the file. Each check returns an error message, or null
+ * when the upload may go on.
+ */
+@Component
+@AllArgsConstructor
+public class PolicyFileValidator {
+
+    private FileLimitProperties fileLimitProperties;
+
+    public String checkSize(String contentType, long size) {
+        DataSize limit = maxSize(contentType);
+        if (size > limit.toBytes()) {
+            return "File of type " + contentType + " exceeds the limit of " + limit;
+        }
+        return null;
+    }
+
+    public String checkContent(String contentType, byte[] head, int length) {
+        if (!FileFormats.matchesContentType(contentType, head, length)) {
+            return "File content does not match its declared type " + contentType;
+        }
+        return null;
+    }
+
+    /**
+     * Sniffs the content of a file, reading only its first few bytes
+     */
+    public String checkContent(String contentType, InputStreamSource file) {
+        try (InputStream in = file.getInputStream()) {
+            byte[] head = FileFormats.readMagic(in);
+            return checkContent(contentType, head, head.length);
+        } catch (IOException e) {
+            return "Could not read file: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Largest request body that could hold an acceptable file of any type
+     */
+    public long maxRequestSize() {
+        long largest = this.fileLimitProperties.getDefaultMaxSize().toBytes();
+        for (DataSize limit : this.fileLimitProperties.getMaxSize().values()) {
+            largest = Math.max(largest, limit.toBytes());
+        }
+        return largest + this.fileLimitProperties.getRequestOverhead().toBytes();
+    }
+
+    private DataSize maxSize(String contentType) {
+        DataSize limit = contentType != null ? this.fileLimitProperties.getMaxSize().get(contentType) : null;
+        return limit != null ? limit : this.fileLimitProperties.getDefaultMaxSize();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.policy.service;
+
+import com.example.policy.config.CompressionProperties;
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.model.StoredContent;
+import com.example.policy.utils.PolicyFileCodec;
+import com.example.policy.utils.PolicyFileCodecs;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes new content for a policy file with the codec configured for its type and writes it
+ * to the PolicyFileStore. Large files are compressed in parallel blocks.
+ */
+@Component
+public class PolicyFileWriter {
+
+    private final PolicyFileStore policyFileStore;
+    private final CompressionProperties compressionProperties;
+    private final PolicyFileStoreCollector policyFileStoreCollector;
+    private final Map<String, PolicyFileCodec> codecs = new HashMap<>();
+    private final PolicyFileCodec defaultCodec;
+
+    // Codec names are resolved here so an unknown one fails at startup, not on the first upload
+    public PolicyFileWriter(PolicyFileStore policyFileStore, CompressionProperties compressionProperties,
+                            PolicyFileStoreCollector policyFileStoreCollector) {
+        this.policyFileStore = policyFileStore;
+        this.compressionProperties = compressionProperties;
+        this.policyFileStoreCollector = policyFileStoreCollector;
+        compressionProperties.getCodecs().forEach((contentType, codec) ->
+                this.codecs.put(contentType.toLowerCase(), PolicyFileCodecs.forName(codec)));
+        this.defaultCodec = PolicyFileCodecs.forName(compressionProperties.getDefaultCodec());
+    }
+
+    /**
+     * Stores the content and sets the content fields of {@code policyFile}; the row is not saved.
+     * If the surrounding transaction rolls back, the stored copy is discarded again.
+     * @return the stored content, for callers outside a transaction to discard themselves
+     */
+    public StoredContent write(PolicyFiles policyFile, String contentType, long fileSize, InputStreamSource file) throws IOException {
+        PolicyFileCodec codec = contentType == null ? this.defaultCodec
+                : this.codecs.getOrDefault(contentType.toLowerCase(), this.defaultCodec);
+        StoredContent stored;
+        boolean parallel = fileSize >= this.compressionProperties.getParallelThreshold().toBytes();
+        try (InputStream content = parallel
+                ? codec.encodeParallel(file.getInputStream(), (int) this.compressionProperties.getParallelBlockSize().toBytes())
+                : codec.encode(file.getInputStream())) {
+            stored = this.policyFileStore.put(content);
+        }
+        this.policyFileStoreCollector.discardOnRollback(stored);
+        policyFile.setContentHash(stored.getContentHash());
+        policyFile.setContentSize(stored.getContentSize());
+        policyFile.setCodec(codec.getId());
+        policyFile.setFileSize(fileSize);
+        policyFile.setArchived(false);
+        return stored;
+    }
+}
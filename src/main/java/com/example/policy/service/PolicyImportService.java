@@ -0,0 +1,11 @@
+package com.example.policy.service;
+
+import com.example.policy.model.PolicyImportEntry;
+import com.example.policy.model.PolicyImportResult;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+public interface PolicyImportService {
+    List<PolicyImportResult> importPolicyFiles(MultipartFile archive, List<PolicyImportEntry> manifest);
+}
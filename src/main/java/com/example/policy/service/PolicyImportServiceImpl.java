@@ -0,0 +1,298 @@
+package com.example.policy.service;
+
+import com.example.policy.config.ImportProperties;
+import com.example.policy.model.*;
+import com.example.policy.repository.PolicyFilesRepository;
+import com.example.policy.repository.PolicyMembersRepository;
+import com.example.policy.repository.PolicyRepository;
+import com.example.policy.utils.FileFormats;
+import com.example.policy.utils.FileUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Bulk import of policy files from a ZIP and a manifest. Entries are handled in batches:
+ * the files of a batch are validated and compressed in parallel on the import pool, then
+ * the policy files, their reviewer/approver rows and first revisions are saved in one
+ * transaction. A failed entry is reported and does not stop the others. Entries are read
+ * no further than their declared size, which is what the size limit was checked against.
+ */
+@Slf4j
+@Service
+public class PolicyImportServiceImpl implements PolicyImportService {
+
+    private final PolicyRepository policyRepository;
+    private final PolicyFilesRepository policyFilesRepository;
+    private final PolicyMembersRepository policyMembersRepository;
+    private final PolicyFileAssignments policyFileAssignments;
+    private final PolicyFileWriter policyFileWriter;
+    private final PolicyFileValidator policyFileValidator;
+    private final PolicyFileHistory policyFileHistory;
+    private final PolicyFileStoreCollector policyFileStoreCollector;
+    private final UploadAdmission uploadAdmission;
+    private final ImportProperties importProperties;
+    private final ExecutorService importExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    public PolicyImportServiceImpl(PolicyRepository policyRepository, PolicyFilesRepository policyFilesRepository,
+                                   PolicyMembersRepository policyMembersRepository,
+                                   PolicyFileAssignments policyFileAssignments,
+                                   PolicyFileWriter policyFileWriter, PolicyFileValidator policyFileValidator,
+                                   PolicyFileHistory policyFileHistory, PolicyFileStoreCollector policyFileStoreCollector,
+                                   UploadAdmission uploadAdmission,
+                                   ImportProperties importProperties,
+                                   @Qualifier("importExecutor") ExecutorService importExecutor,
+                                   PlatformTransactionManager transactionManager) {
+        this.policyRepository = policyRepository;
+        this.policyFilesRepository = policyFilesRepository;
+        this.policyMembersRepository = policyMembersRepository;
+        this.policyFileAssignments = policyFileAssignments;
+        this.policyFileWriter = policyFileWriter;
+        this.policyFileValidator = policyFileValidator;
+        this.policyFileHistory = policyFileHistory;
+        this.policyFileStoreCollector = policyFileStoreCollector;
+        this.uploadAdmission = uploadAdmission;
+        this.importProperties = importProperties;
+        this.importExecutor = importExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public List<PolicyImportResult> importPolicyFiles(MultipartFile archive, List<PolicyImportEntry> manifest) {
+        if (manifest.size() > this.importProperties.getMaxEntries()) {
+            throw new RuntimeException("Manifest has " + manifest.size() + " entries, the limit is "
+                    + this.importProperties.getMaxEntries());
+        }
+        Map<Long, String> policyErrors = checkPolicies(manifest);
+
+        Path spooled = null;
+        try {
+            // ZipFile needs random access to read the central directory and entries in parallel
+            spooled = Files.createTempFile("policy-import-", ".zip");
+            archive.transferTo(spooled);
+            try (ZipFile zip = new ZipFile(spooled.toFile())) {
+                List<PolicyImportResult> results = new ArrayList<>(manifest.size());
+                int batchSize = Math.max(1, this.importProperties.getBatchSize());
+                for (int from = 0; from < manifest.size(); from += batchSize) {
+                    results.addAll(importBatch(zip, manifest.subList(from, Math.min(from + batchSize, manifest.size())),
+                            policyErrors));
+                }
+                return results;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading archive: " + archive.getOriginalFilename(), e);
+        } finally {
+            if (spooled != null) {
+                try {
+                    Files.deleteIfExists(spooled);
+                } catch (IOException e) {
+                    log.warn("Could not delete spooled archive {}", spooled, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks each policy named in the manifest once, before any content is compressed
+     * @return error message by policy id, for policies entries cannot be imported into
+     */
+    private Map<Long, String> checkPolicies(List<PolicyImportEntry> manifest) {
+        Set<Long> policyIds = new HashSet<>();
+        for (PolicyImportEntry entry : manifest) {
+            policyIds.add(entry.getPolicyId());
+        }
+        Map<Long, String> errors = new HashMap<>();
+        Map<Long, Policy> policies = new HashMap<>();
+        for (Policy policy : this.policyRepository.findAllById(policyIds)) {
+            policies.put(policy.getPolicyId(), policy);
+        }
+        for (Long policyId : policyIds) {
+            Policy policy = policies.get(policyId);
+            if (policy == null) {
+                errors.put(policyId, "Policy not found with id: " + policyId);
+            } else if (this.policyMembersRepository.findByPolicyAndRole(policy, PolicyRole.CREATOR).isEmpty()) {
+                errors.put(policyId, "No CREATOR found for this policy");
+            }
+        }
+        return errors;
+    }
+
+    private List<PolicyImportResult> importBatch(ZipFile zip, List<PolicyImportEntry> entries,
+                                                 Map<Long, String> policyErrors) {
+        PolicyImportResult[] results = new PolicyImportResult[entries.size()];
+        List<Future<Prepared>> prepared = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            PolicyImportEntry entry = entries.get(i);
+            String policyError = policyErrors.get(entry.getPolicyId());
+            if (policyError != null) {
+                results[i] = failed(entry, policyError);
+                prepared.add(null);
+            } else {
+                prepared.add(this.importExecutor.submit(() -> prepare(zip, entry)));
+            }
+        }
+
+        List<PolicyFiles> ready = new ArrayList<>();
+        List<StoredContent> stored = new ArrayList<>();
+        List<Integer> readyIndexes = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            if (prepared.get(i) == null) {
+                continue;
+            }
+            try {
+                Prepared file = prepared.get(i).get();
+                ready.add(file.policyFile);
+                stored.add(file.stored);
+                readyIndexes.add(i);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                results[i] = failed(entries.get(i), cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Import interrupted", e);
+            }
+        }
+
+        if (!ready.isEmpty()) {
+            try {
+                List<Long> policyIds = new ArrayList<>(ready.size());
+                for (int index : readyIndexes) {
+                    policyIds.add(entries.get(index).getPolicyId());
+                }
+                this.transactionTemplate.executeWithoutResult(status -> persist(ready, policyIds));
+                for (int i = 0; i < ready.size(); i++) {
+                    PolicyImportEntry entry = entries.get(readyIndexes.get(i));
+                    results[readyIndexes.get(i)] = new PolicyImportResult(entry.getPath(), entry.getPolicyId(),
+                            PolicyImportResult.Status.IMPORTED, ready.get(i).getPolicyFilesId(), null);
+                }
+            } catch (Exception e) {
+                log.error("Import batch of {} files failed", ready.size(), e);
+                // The rows were never saved, so their content is not needed
+                this.policyFileStoreCollector.discard(stored);
+                for (int index : readyIndexes) {
+                    results[index] = failed(entries.get(index), "Error saving batch: " + e.getMessage());
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Validates one entry and stores its compressed content; runs on the import pool
+     */
+    private Prepared prepare(ZipFile zip, PolicyImportEntry entry) throws IOException {
+        if (!"CREATED".equals(entry.getStatus())) {
+            throw new RuntimeException("Invalid status. Only 'CREATED' is allowed.");
+        }
+        if (entry.getEffectiveStartDate() != null && entry.getEffectiveEndDate() != null
+                && entry.getEffectiveStartDate().after(entry.getEffectiveEndDate())) {
+            throw new RuntimeException("Effective start date must be before effective end date");
+        }
+        ZipEntry zipEntry = entry.getPath() != null ? zip.getEntry(entry.getPath()) : null;
+        if (zipEntry == null || zipEntry.isDirectory()) {
+            throw new RuntimeException("File not found in archive: " + entry.getPath());
+        }
+        long size = zipEntry.getSize();
+        if (size < 0) {
+            throw new RuntimeException("Size of " + entry.getPath() + " is not recorded in the archive");
+        }
+        // The declared size is checked against the limit; reading stops as soon as the content runs past it
+        InputStreamSource content = () -> FileUtils.exactLengthStream(zip.getInputStream(zipEntry), size);
+
+        String contentType = entry.getFileType();
+        if (contentType == null) {
+            try (InputStream in = zip.getInputStream(zipEntry)) {
+                byte[] head = FileFormats.readMagic(in);
+                contentType = FileFormats.sniffContentType(head, head.length);
+            }
+            if (contentType == null) {
+                throw new RuntimeException("Could not detect the file type of " + entry.getPath());
+            }
+        }
+        if (!FileFormats.proposalFileFormat().contains(contentType)) {
+            throw new RuntimeException("Unsupported file format: " + contentType);
+        }
+        String invalid = this.policyFileValidator.checkSize(contentType, size);
+        if (invalid == null && entry.getFileType() != null) {
+            invalid = this.policyFileValidator.checkContent(contentType, content);
+        }
+        if (invalid != null) {
+            throw new RuntimeException(invalid);
+        }
+
+        PolicyFiles policyFile = new PolicyFiles();
+        policyFile.setPolicyVersion(entry.getVersion());
+        policyFile.setCreatedDate(entry.getCreatedDate());
+        policyFile.setEffctiveStartDate(entry.getEffectiveStartDate());
+        policyFile.setEffectiveEndDate(entry.getEffectiveEndDate());
+        policyFile.setStatus(entry.getStatus());
+        policyFile.setFileName(Path.of(zipEntry.getName()).getFileName().toString());
+        policyFile.setFileType(contentType);
+        policyFile.setFinalAcceptance(false);
+        policyFile.setFinalApproval(false);
+        // Imports share the upload budget with interactive uploads
+        StoredContent stored;
+        UploadAdmission.Permit permit = this.uploadAdmission.acquireBlocking(size);
+        try {
+            stored = this.policyFileWriter.write(policyFile, contentType, size, content);
+        } finally {
+            permit.close();
+        }
+        return new Prepared(policyFile, stored);
+    }
+
+    private void persist(List<PolicyFiles> policyFiles, List<Long> policyIds) {
+        Map<Long, Policy> policies = new HashMap<>();
+        for (Policy policy : this.policyRepository.findAllById(new HashSet<>(policyIds))) {
+            policies.put(policy.getPolicyId(), policy);
+        }
+        for (int i = 0; i < policyFiles.size(); i++) {
+            Policy policy = policies.get(policyIds.get(i));
+            if (policy == null) {
+                throw new RuntimeException("Policy not found with id: " + policyIds.get(i));
+            }
+            policyFiles.get(i).setPolicy(policy);
+        }
+        this.policyFilesRepository.saveAll(policyFiles);
+
+        List<Long> policyFilesIds = new ArrayList<>(policyFiles.size());
+        for (PolicyFiles policyFile : policyFiles) {
+            policyFilesIds.add(policyFile.getPolicyFilesId());
+        }
+        this.policyFileAssignments.assignMembers(policyFilesIds);
+        for (Policy policy : policies.values()) {
+            policy.setRevision(policy.getRevision() + 1);
+        }
+        this.policyFileHistory.recordNewFiles(policyFiles);
+    }
+
+    private static class Prepared {
+        private final PolicyFiles policyFile;
+        private final StoredContent stored;
+
+        Prepared(PolicyFiles policyFile, StoredContent stored) {
+            this.policyFile = policyFile;
+            this.stored = stored;
+        }
+    }
+
+    private PolicyImportResult failed(PolicyImportEntry entry, String error) {
+        return new PolicyImportResult(entry.getPath(), entry.getPolicyId(), PolicyImportResult.Status.FAILED, null, error);
+    }
+}
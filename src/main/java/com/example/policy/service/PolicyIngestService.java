@@ -0,0 +1,11 @@
+package com.example.policy.service;
+
+import com.example.policy.model.IngestJob;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Date;
+
+public interface PolicyIngestService {
+    IngestJob submitPolicyFile(Long policyId, MultipartFile file, String version, String status, Date createdDate, Date effectiveStartDate, Date effectiveEndDate);
+    IngestJob getJob(String jobId);
+}
@@ -0,0 +1,218 @@
+package com.example.policy.service;
+
+import com.example.policy.config.IngestProperties;
+import com.example.policy.model.IngestJob;
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.repository.IngestJobRepository;
+import com.example.policy.repository.PolicyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Stores policy files in the background. Jobs are recorded in the database, so their status
+ * can be polled on any node and outlives a restart; the spooled upload itself stays on the
+ * node that accepted it, and a job that node did not finish is failed when it starts again.
+ */
+@Slf4j
+@Service
+public class PolicyIngestServiceImpl implements PolicyIngestService {
+
+    private final PolicyService policyService;
+    private final PolicyRepository policyRepository;
+    private final IngestJobRepository ingestJobRepository;
+    private final ExecutorService ingestExecutor;
+    private final IngestProperties ingestProperties;
+    private final UploadAdmission uploadAdmission;
+    private final TransactionTemplate transactionTemplate;
+    private final Path spoolDir;
+
+    // Jobs queued or running on this node, for their live progress
+    private final Map<String, IngestJob> running = new ConcurrentHashMap<>();
+
+    public PolicyIngestServiceImpl(PolicyService policyService, PolicyRepository policyRepository,
+                                   IngestJobRepository ingestJobRepository,
+                                   @Qualifier("ingestExecutor") ExecutorService ingestExecutor, IngestProperties ingestProperties,
+                                   UploadAdmission uploadAdmission, PlatformTransactionManager transactionManager) throws IOException {
+        this.policyService = policyService;
+        this.policyRepository = policyRepository;
+        this.ingestJobRepository = ingestJobRepository;
+        this.ingestExecutor = ingestExecutor;
+        this.ingestProperties = ingestProperties;
+        this.uploadAdmission = uploadAdmission;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.spoolDir = Paths.get(ingestProperties.getSpoolDir()).toAbsolutePath();
+        Files.createDirectories(this.spoolDir);
+        sweepSpoolDir();
+    }
+
+    @Override
+    public IngestJob submitPolicyFile(Long policyId, MultipartFile file, String version, String status,
+                                      Date createdDate, Date effectiveStartDate, Date effectiveEndDate) {
+        this.policyRepository.findById(policyId)
+                .orElseThrow(() -> new RuntimeException("Policy not found with id: " + policyId));
+
+        IngestJob job = new IngestJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setPolicyId(policyId);
+        job.setFileName(file.getOriginalFilename());
+        job.setFileSize(file.getSize());
+        job.setSubmittedDate(new Date());
+
+        // The multipart part is deleted when the request ends, so keep our own copy.
+        // For parts already on disk this is a rename rather than a copy.
+        Path spooled = this.spoolDir.resolve(job.getJobId());
+        try {
+            file.transferTo(spooled);
+        } catch (IOException e) {
+            throw new RuntimeException("Error spooling file: " + file.getOriginalFilename(), e);
+        }
+        // Visible on the status endpoint from the moment a worker can pick it up
+        this.ingestJobRepository.save(job);
+        this.running.put(job.getJobId(), job);
+
+        String fileName = file.getOriginalFilename();
+        String contentType = file.getContentType();
+        long fileSize = file.getSize();
+        try {
+            this.ingestExecutor.execute(() -> run(job, spooled, () -> new FilterInputStream(Files.newInputStream(spooled)) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b != -1) {
+                        job.setBytesProcessed(job.getBytesProcessed() + 1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int count = super.read(b, off, len);
+                    if (count > 0) {
+                        job.setBytesProcessed(job.getBytesProcessed() + count);
+                    }
+                    return count;
+                }
+            }, fileName, contentType, fileSize, version, status, createdDate, effectiveStartDate, effectiveEndDate));
+        } catch (RejectedExecutionException e) {
+            this.running.remove(job.getJobId());
+            this.ingestJobRepository.deleteById(job.getJobId());
+            deleteSpooled(spooled);
+            throw e;
+        }
+        return job;
+    }
+
+    @Override
+    public IngestJob getJob(String jobId) {
+        IngestJob job = this.running.get(jobId);
+        if (job != null) {
+            return job;
+        }
+        return this.ingestJobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Ingest job not found with id: " + jobId));
+    }
+
+    /**
+     * Deletes jobs that finished longer than the job retention ago
+     */
+    @Scheduled(fixedDelayString = "${policy.ingest.purge-interval:PT10M}",
+            initialDelayString = "${policy.ingest.purge-initial-delay:PT5M}")
+    public void purgeFinishedJobs() {
+        Date cutoff = new Date(System.currentTimeMillis() - this.ingestProperties.getJobRetention().toMillis());
+        Integer purged = this.transactionTemplate.execute(status -> this.ingestJobRepository.deleteFinishedBefore(cutoff));
+        if (purged != null && purged > 0) {
+            log.debug("Purged {} finished ingest jobs", purged);
+        }
+    }
+
+    private void run(IngestJob job, Path spooled, InputStreamSource content, String fileName, String contentType,
+                     long fileSize, String version, String status, Date createdDate, Date effectiveStartDate,
+                     Date effectiveEndDate) {
+        // Workers share the upload budget with request threads; the job queue already bounds how many wait
+        UploadAdmission.Permit permit = null;
+        try {
+            permit = this.uploadAdmission.acquireBlocking(fileSize);
+            job.setStatus(IngestJob.Status.RUNNING);
+            saveJob(job);
+            PolicyFiles policyFile = this.policyService.addPolicyFile(job.getPolicyId(), fileName, contentType,
+                    fileSize, content, version, status, createdDate, effectiveStartDate, effectiveEndDate);
+            job.setPolicyFilesId(policyFile.getPolicyFilesId());
+            job.setStatus(IngestJob.Status.DONE);
+        } catch (Exception e) {
+            log.error("Ingest job {} failed", job.getJobId(), e);
+            job.setError(truncate(e.getMessage()));
+            job.setStatus(IngestJob.Status.FAILED);
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+            job.setCompletedDate(new Date());
+            saveJob(job);
+            this.running.remove(job.getJobId());
+            deleteSpooled(spooled);
+        }
+    }
+
+    private void saveJob(IngestJob job) {
+        try {
+            this.ingestJobRepository.save(job);
+        } catch (RuntimeException e) {
+            log.error("Could not record the status of ingest job {}", job.getJobId(), e);
+        }
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > IngestJob.MAX_ERROR_LENGTH
+                ? error.substring(0, IngestJob.MAX_ERROR_LENGTH) : error;
+    }
+
+    // Spooled files left at startup belong to jobs this node accepted but never finished; the
+    // upload was only here, so nothing can pick them up. Their jobs are failed so a client
+    // polling for them learns to submit the file again
+    private void sweepSpoolDir() throws IOException {
+        List<String> jobIds = new ArrayList<>();
+        try (Stream<Path> files = Files.list(this.spoolDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    deleteSpooled(file);
+                    jobIds.add(file.getFileName().toString());
+                }
+            }
+        }
+        if (!jobIds.isEmpty()) {
+            this.transactionTemplate.executeWithoutResult(status -> this.ingestJobRepository.markInterrupted(jobIds,
+                    "Interrupted by a restart before the file was stored; submit it again", new Date()));
+            log.warn("Deleted {} spooled uploads of ingest jobs that did not finish before the last shutdown", jobIds.size());
+        }
+    }
+
+    private void deleteSpooled(Path spooled) {
+        try {
+            Files.deleteIfExists(spooled);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}", spooled, e);
+        }
+    }
+}
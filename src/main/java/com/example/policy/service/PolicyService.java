@@ -1,21 +1,31 @@
 package com.example.policy.service;
 
 import com.example.policy.model.*;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 
 public interface PolicyService {
     Policy createPolicy(Policy policy);
     Policy getPolicyById(Long policyId);
     PolicyApproverAndReviewer updatePolicyReviewer(Long policyId, Long userId, boolean isAccepted, String rejectedReason, Long policyFileId);
-    PolicyMembers addPolicyMember(Long policyId, Long userId, PolicyRole role);
+    PolicyMembers addPolicyMember(Long policyId, Long userId, PolicyRole role, Integer weight);
     PolicyApproverAndReviewer updatePolicyApprover(Long policyId, Long policyFileId, Long userId, boolean isApproved, String rejectedReason);
+    List<PolicyDecisionResult> updateDecisions(Long userId, PolicyRole role, List<PolicyDecisionItem> decisions);
     List<Policy> getAllPolicies();
     PolicyFiles updatePolicyFiles(Long policyId, Long policyFileId, MultipartFile file, String version, String status, Date effectiveEndDate);
     PolicyFiles addPolicyFile(Long policyId, MultipartFile file, String version, String status, Date createdDate, Date effectiveStartDate, Date effectiveEndDate);
+    PolicyFiles addPolicyFile(Long policyId, String fileName, String contentType, long fileSize, InputStreamSource content, String version, String status, Date createdDate, Date effectiveStartDate, Date effectiveEndDate);
     PolicyFiles getPolicyFilesById(Long policyFilesId);
     byte[] getPolicyFileContent(Long policyFilesId);
+    Resource getPolicyFileResource(PolicyFiles policyFile, boolean decode);
+    Map<String, Object> getPolicyFileCacheStats();
+    List<PolicyFileRevision> getPolicyFileRevisions(Long policyFilesId);
+    PolicyFileRevision getPolicyFileRevision(Long policyFilesId, int revisionNumber);
+    Resource getPolicyFileRevisionResource(PolicyFileRevision revision);
 }
\ No newline at end of file
@@ -1,18 +1,23 @@
 package com.example.policy.service;
 
+import com.example.policy.config.QuorumProperties;
 import com.example.policy.model.*;
 import com.example.policy.model.PolicyApproverAndReviewer;
 import com.example.policy.repository.*;
-import com.example.policy.utils.FileUtils;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.Date;
-import java.util.List;
+import java.io.InputStream;
+import java.util.*;
 
+@Slf4j
 @Service
 @AllArgsConstructor
 public class PolicyServiceImpl implements PolicyService {
@@ -22,6 +27,13 @@ public class PolicyServiceImpl implements PolicyService {
     private PolicyFilesRepository policyFilesRepository;
     private UserRepository userRepository;
     private PolicyApproverAndReviewerRepository policyApproverAndReviewerRepository;
+    private PolicyFileContentRepository policyFileContentRepository;
+    private PolicyFileStore policyFileStore;
+    private PolicyFileWriter policyFileWriter;
+    private PolicyFileCache policyFileCache;
+    private PolicyFileHistory policyFileHistory;
+    private PolicyFileAssignments policyFileAssignments;
+    private QuorumProperties quorumProperties;
 
 
     @Override
@@ -31,7 +43,7 @@ public class PolicyServiceImpl implements PolicyService {
     }
 
     @Transactional
-    public PolicyMembers addPolicyMember(Long policyId, Long userId, PolicyRole role) {
+    public PolicyMembers addPolicyMember(Long policyId, Long userId, PolicyRole role, Integer weight) {
         Policy policy = this.policyRepository.findById(policyId)
                 .orElseThrow(() -> new RuntimeException("Policy not found"));
         User user = this.userRepository.findById(userId)
@@ -41,6 +53,7 @@ public class PolicyServiceImpl implements PolicyService {
         policyMember.setPolicy(policy);
         policyMember.setUser(user);
         policyMember.setRole(role);
+        policyMember.setWeight(weight);
 
         // If the role is REVIEWER or APPROVER, create a PolicyApproverAndReviewer record
         if (role == PolicyRole.REVIEWER || role == PolicyRole.APPROVER) {
@@ -49,6 +62,7 @@ public class PolicyServiceImpl implements PolicyService {
             reviewer.setRole(role);
             reviewer.setPolicy(policy);
             reviewer.setApproved(false); // default value
+            reviewer.setWeight(weight);
             this.policyApproverAndReviewerRepository.save(reviewer);
         }
 
@@ -61,7 +75,10 @@ public class PolicyServiceImpl implements PolicyService {
         }
 
         policy.getPolicyMembersList().add(policyMember);
-        return this.policyMembersRepository.save(policyMember);
+        PolicyMembers savedMember = this.policyMembersRepository.save(policyMember);
+        // Existing files still in review or approval get the new member too
+        this.policyFileAssignments.assignFiles(policyId, userId, role, weight);
+        return savedMember;
     }
 
 
@@ -75,91 +92,157 @@ public class PolicyServiceImpl implements PolicyService {
     @Transactional
     public PolicyApproverAndReviewer updatePolicyReviewer(Long policyId, Long userId, boolean isAccepted,
                                                           String rejectedReason, Long policyFileId) {
-
-        Policy policy = this.policyRepository.findById(policyId).orElseThrow(() -> new RuntimeException("Policy not found"));
-        PolicyFiles policyFile = this.policyFilesRepository.findById(policyFileId).orElseThrow(() -> new RuntimeException("Policy file not found"));
-
-        // Get current reviewer
-        PolicyApproverAndReviewer reviewer = this.policyApproverAndReviewerRepository
-                .findByUserIdAndPolicy_PolicyIdAndPolicyFiles_PolicyFilesId(userId, policyId, policyFileId)
-                .stream()
-                .filter(r -> r.getRole() == PolicyRole.REVIEWER)
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Reviewer not found"));
-
-        // Check if reviewer has already made a decision
-        if (reviewer.isApproved() || reviewer.getRejectedReason() != null) {
+        // Lock the file before the decision row, in the order the round close takes them
+        this.policyFilesRepository.lockForDecisions(List.of(policyFileId));
+
+        // Record the decision only if the reviewer has not made one and the round is still open
+        if (this.policyApproverAndReviewerRepository.recordDecision(policyId, policyFileId, userId,
+                PolicyRole.REVIEWER, isAccepted, rejectedReason) == 0) {
+            this.policyRepository.findById(policyId).orElseThrow(() -> new RuntimeException("Policy not found"));
+            this.policyFilesRepository.findById(policyFileId).orElseThrow(() -> new RuntimeException("Policy file not found"));
+            PolicyApproverAndReviewer reviewer = findDecisionRow(policyId, policyFileId, userId, PolicyRole.REVIEWER)
+                    .orElseThrow(() -> new RuntimeException("Reviewer not found"));
+            if (reviewer.isMoot()) {
+                throw new RuntimeException("Review of this policy file is already closed.");
+            }
             throw new RuntimeException("Reviewer has already made a decision for this policy file.");
         }
+        PolicyApproverAndReviewer reviewer = findDecisionRow(policyId, policyFileId, userId, PolicyRole.REVIEWER)
+                .orElseThrow(() -> new RuntimeException("Reviewer not found"));
 
-        // Update reviewer decision
-        reviewer.setApproved(isAccepted);
-        reviewer.setRejectedReason(rejectedReason);
-
-        // Get all reviewers and their decisions
-        List<PolicyApproverAndReviewer> allReviewers = this.policyApproverAndReviewerRepository.findByPolicyAndRoleAndPolicyFiles(policy, PolicyRole.REVIEWER, policyFile);
-
-        boolean allReviewersResponded = allReviewers.stream()
-                .allMatch(r -> r.isApproved() || r.getRejectedReason() != null);
-
-        // Update policy file status if all reviewers have responded
-        if (allReviewersResponded) {
-            double approvalPercentage = (allReviewers.stream()
-                    .filter(PolicyApproverAndReviewer::isApproved)
-                    .count() * 100.0) / allReviewers.size();
+        // Tally it on the file; the other reviewers are never re-read
+        int weight = weightOf(reviewer);
+        this.policyFilesRepository.addReviewerVote(policyFileId, isAccepted ? weight : 0, isAccepted ? 0 : weight);
+        // The vote shows in the policy's file list whether or not it closes the round
+        this.policyRepository.bumpRevisionOfFiles(List.of(policyFileId));
+        PolicyFiles policyFile = this.policyFilesRepository.findById(policyFileId)
+                .orElseThrow(() -> new RuntimeException("Policy file not found"));
 
-            boolean shouldAccept = approvalPercentage > 50;
-            policyFile.setFinalAcceptance(shouldAccept);
-            policyFile.setStatus(shouldAccept ? "UNDER_APPROVAL" : "REJECTED_BY_REVIEWERS");
+        // Close the review as soon as its outcome is settled
+        if (settle(policyFile, PolicyRole.REVIEWER)) {
             this.policyFilesRepository.save(policyFile);
         }
 
-        return this.policyApproverAndReviewerRepository.save(reviewer);
+        return reviewer;
     }
 
     @Override
     @Transactional
     public PolicyApproverAndReviewer updatePolicyApprover(Long policyId, Long policyFileId, Long userId,
                                                           boolean isApproved, String rejectedReason) {
-        // Validate policy and policy file existence
-        Policy policy = this.policyRepository.findById(policyId)
-                .orElseThrow(() -> new RuntimeException("Policy not found with ID: " + policyId));
+        // Lock the file before the decision row, in the order the round close takes them
+        this.policyFilesRepository.lockForDecisions(List.of(policyFileId));
+
+        // Record the decision only if the approver has not made one and the round is still open
+        if (this.policyApproverAndReviewerRepository.recordDecision(policyId, policyFileId, userId,
+                PolicyRole.APPROVER, isApproved, rejectedReason) == 0) {
+            this.policyRepository.findById(policyId)
+                    .orElseThrow(() -> new RuntimeException("Policy not found with ID: " + policyId));
+            this.policyFilesRepository.findById(policyFileId)
+                    .orElseThrow(() -> new RuntimeException("Policy file not found with ID: " + policyFileId));
+            PolicyApproverAndReviewer approver = findDecisionRow(policyId, policyFileId, userId, PolicyRole.APPROVER)
+                    .orElseThrow(() -> new RuntimeException("Approver not found"));
+            if (approver.isMoot()) {
+                throw new RuntimeException("Approval of this policy file is already closed.");
+            }
+            throw new RuntimeException("Approver has already made a decision for this policy file.");
+        }
+        PolicyApproverAndReviewer approver = findDecisionRow(policyId, policyFileId, userId, PolicyRole.APPROVER)
+                .orElseThrow(() -> new RuntimeException("Approver not found"));
+
+        int weight = weightOf(approver);
+        this.policyFilesRepository.addApproverVote(policyFileId, isApproved ? weight : 0, isApproved ? 0 : weight);
+        this.policyRepository.bumpRevisionOfFiles(List.of(policyFileId));
         PolicyFiles policyFile = this.policyFilesRepository.findById(policyFileId)
                 .orElseThrow(() -> new RuntimeException("Policy file not found with ID: " + policyFileId));
 
-        // Retrieve approver
-        PolicyApproverAndReviewer approver = this.policyApproverAndReviewerRepository
-                .findByUserIdAndPolicy_PolicyIdAndPolicyFiles_PolicyFilesId(userId, policyId, policyFileId)
-                .stream()
-                .filter(a -> a.getRole() == PolicyRole.APPROVER)
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Approver not found"));
-
-        if (approver.isApproved() || approver.getRejectedReason() != null) {
-            throw new RuntimeException("Approver has already made a decision for this policy file.");
+        if (settle(policyFile, PolicyRole.APPROVER)) {
+            this.policyFilesRepository.save(policyFile);
+        } else if (!policyFile.isFinalAcceptance()) {
+            log.debug("Approval of policy file {} recorded before the reviewers accepted it", policyFileId);
         }
+        return approver;
+    }
 
-        approver.setApproved(isApproved);
-        approver.setRejectedReason(rejectedReason);
-        PolicyApproverAndReviewer updatedApprover = this.policyApproverAndReviewerRepository.save(approver);
+    @Override
+    @Transactional
+    public List<PolicyDecisionResult> updateDecisions(Long userId, PolicyRole role, List<PolicyDecisionItem> decisions) {
+        String member = role == PolicyRole.REVIEWER ? "Reviewer" : "Approver";
+        String closed = (role == PolicyRole.REVIEWER ? "Review" : "Approval") + " of this policy file is already closed.";
+        List<Long> policyFilesIds = new ArrayList<>(decisions.size());
+        for (PolicyDecisionItem decision : decisions) {
+            policyFilesIds.add(decision.getPolicyFileId());
+        }
+        // Lock every file of the group, in id order, before any decision row. Concurrent batches
+        // and single decisions then queue on the files and cannot hold rows the other needs
+        this.policyFilesRepository.lockForDecisions(policyFilesIds);
+        Map<Long, PolicyApproverAndReviewer> rows = new HashMap<>();
+        for (PolicyApproverAndReviewer row : this.policyApproverAndReviewerRepository.findDecisionRows(userId, role, policyFilesIds)) {
+            rows.put(row.getPolicyFiles().getPolicyFilesId(), row);
+        }
 
-        // Check final acceptance and update status if needed
-        if (policy.getPolicyFilesList() != null && !policy.getPolicyFilesList().isEmpty() && policyFile.isFinalAcceptance()) {
-            List<PolicyApproverAndReviewer> allApprovers = this.policyApproverAndReviewerRepository
-                    .findByPolicyAndRoleAndPolicyFiles(policy, PolicyRole.APPROVER, policyFile);
+        // Record the decisions in file order
+        List<Integer> order = new ArrayList<>(decisions.size());
+        for (int i = 0; i < decisions.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingLong(i -> decisions.get(i).getPolicyFileId()));
+
+        PolicyDecisionResult[] results = new PolicyDecisionResult[decisions.size()];
+        // Approved and rejected weight by file, tallied once per file below
+        Map<Long, int[]> votes = new TreeMap<>();
+        for (int i : order) {
+            PolicyDecisionItem decision = decisions.get(i);
+            PolicyApproverAndReviewer row = rows.get(decision.getPolicyFileId());
+            String error = null;
+            if (row == null || row.getPolicy().getPolicyId() != decision.getPolicyId()) {
+                error = member + " not found";
+            } else if (row.isMoot()) {
+                error = closed;
+            } else if (row.isDecided()) {
+                error = member + " has already made a decision for this policy file.";
+            } else if (this.policyApproverAndReviewerRepository.recordDecision(decision.getPolicyId(),
+                    decision.getPolicyFileId(), userId, role, decision.isApproved(), decision.getRejectedReason()) == 0) {
+                // The row changed after it was read; say which way
+                error = this.policyApproverAndReviewerRepository.isMoot(row.getPolicyApproverAndReviewerId())
+                        ? closed : member + " has already made a decision for this policy file.";
+            }
+            if (error != null) {
+                results[i] = new PolicyDecisionResult(decision.getPolicyId(), decision.getPolicyFileId(),
+                        PolicyDecisionResult.Status.FAILED, null, error);
+                continue;
+            }
+            votes.computeIfAbsent(decision.getPolicyFileId(), id -> new int[2])[decision.isApproved() ? 0 : 1] += weightOf(row);
+            results[i] = new PolicyDecisionResult(decision.getPolicyId(), decision.getPolicyFileId(),
+                    PolicyDecisionResult.Status.APPLIED, null, null);
+        }
+        if (votes.isEmpty()) {
+            return Arrays.asList(results);
+        }
 
-            boolean hasRejection = allApprovers.stream().anyMatch(a -> !a.isApproved());
-            boolean allResponded = allApprovers.stream().allMatch(a -> a.isApproved() || (a.getRejectedReason() != null && !a.getRejectedReason().trim().isEmpty()));
+        for (Map.Entry<Long, int[]> vote : votes.entrySet()) {
+            if (role == PolicyRole.REVIEWER) {
+                this.policyFilesRepository.addReviewerVote(vote.getKey(), vote.getValue()[0], vote.getValue()[1]);
+            } else {
+                this.policyFilesRepository.addApproverVote(vote.getKey(), vote.getValue()[0], vote.getValue()[1]);
+            }
+        }
+        this.policyRepository.bumpRevisionOfFiles(votes.keySet());
 
-            if (allResponded) {
-                policyFile.setFinalApproval(!hasRejection);
-                policyFile.setStatus(hasRejection ? "REJECTED" : "APPROVED");
+        // One pass over the files the batch voted on, closing the rounds that are now settled
+        Map<Long, String> fileStatus = new HashMap<>();
+        for (PolicyFiles policyFile : this.policyFilesRepository.findAllById(votes.keySet())) {
+            if (settle(policyFile, role)) {
                 this.policyFilesRepository.save(policyFile);
             }
-        } else {
-            System.out.println("Policy file does not have final acceptance from reviewers yet");
+            fileStatus.put(policyFile.getPolicyFilesId(), policyFile.getStatus());
         }
-        return updatedApprover;
+        for (PolicyDecisionResult result : results) {
+            if (result.getStatus() == PolicyDecisionResult.Status.APPLIED) {
+                result.setFileStatus(fileStatus.get(result.getPolicyFileId()));
+            }
+        }
+        return Arrays.asList(results);
     }
 
     @Override
@@ -173,7 +256,7 @@ public class PolicyServiceImpl implements PolicyService {
                                          String version, String status, Date effectiveEndDate) {
 
         // First verify policy exists
-        this.policyRepository.findById(policyId).orElseThrow(() -> new RuntimeException("Policy not found with id: " + policyId));
+        Policy policy = this.policyRepository.findById(policyId).orElseThrow(() -> new RuntimeException("Policy not found with id: " + policyId));
 
         // Find the specific policy file to update
         PolicyFiles existingPolicyFile = this.policyFilesRepository.findById(policyFileId).orElseThrow(() -> new RuntimeException("Policy file not found with id: " + policyFileId));
@@ -184,9 +267,14 @@ public class PolicyServiceImpl implements PolicyService {
         }
 
         try {
-            existingPolicyFile.setFileName(file.getOriginalFilename());
-            existingPolicyFile.setFileType(file.getContentType());
-            existingPolicyFile.setFile(FileUtils.compressFile(file.getBytes()));
+            // Without a file only the details change; the content and its history stay as they are
+            if (file != null) {
+                // Files added before the history existed get their current content as revision 1
+                this.policyFileHistory.recordBaseline(existingPolicyFile);
+
+                existingPolicyFile.setFileName(file.getOriginalFilename());
+                existingPolicyFile.setFileType(file.getContentType());
+            }
             existingPolicyFile.setPolicyVersion(version);
             existingPolicyFile.setStatus(status);
 
@@ -195,6 +283,15 @@ public class PolicyServiceImpl implements PolicyService {
             }
             existingPolicyFile.setEffectiveEndDate(effectiveEndDate);
 
+            if (file != null) {
+                this.policyFileWriter.write(existingPolicyFile, file.getContentType(), file.getSize(), file);
+                this.policyFileHistory.recordRevision(existingPolicyFile);
+                // Drop any legacy blob so the row does not keep a stale copy
+                this.policyFileContentRepository.clearLegacyContent(policyFileId);
+                this.policyFileCache.invalidate(policyFileId);
+            }
+            bumpRevision(existingPolicyFile);
+            bumpRevision(policy);
             return this.policyFilesRepository.save(existingPolicyFile);
         } catch (IOException e) {
             throw new RuntimeException("Error processing file: " + e.getMessage());
@@ -205,6 +302,15 @@ public class PolicyServiceImpl implements PolicyService {
     @Transactional
     public PolicyFiles addPolicyFile(Long policyId, MultipartFile file, String version,
                                      String status, Date createdDate, Date effectiveStartDate, Date effectiveEndDate) {
+        return addPolicyFile(policyId, file.getOriginalFilename(), file.getContentType(), file.getSize(), file,
+                version, status, createdDate, effectiveStartDate, effectiveEndDate);
+    }
+
+    @Override
+    @Transactional
+    public PolicyFiles addPolicyFile(Long policyId, String fileName, String contentType, long fileSize,
+                                     InputStreamSource content, String version, String status,
+                                     Date createdDate, Date effectiveStartDate, Date effectiveEndDate) {
         // Get existing policy
         Policy policy = this.policyRepository.findById(policyId)
                 .orElseThrow(() -> new RuntimeException("Policy not found with id: " + policyId));
@@ -225,67 +331,28 @@ public class PolicyServiceImpl implements PolicyService {
             policyFile.setStatus(status);
 
             // Set file details
-            policyFile.setFileName(file.getOriginalFilename());
-            policyFile.setFileType(file.getContentType());
-            policyFile.setFile(FileUtils.compressFile(file.getBytes()));
+            policyFile.setFileName(fileName);
+            policyFile.setFileType(contentType);
+            this.policyFileWriter.write(policyFile, contentType, fileSize, content);
 
             // Set initial approval states
             policyFile.setFinalAcceptance(false);
             policyFile.setFinalApproval(false);
 
             policy.getPolicyFilesList().add(policyFile);
+            bumpRevision(policy);
 
             // Save the policy file
             PolicyFiles savedPolicyFile = this.policyFilesRepository.save(policyFile);
+            this.policyFileHistory.recordBaseline(savedPolicyFile);
 
-            // Get all existing reviewers for the policy
-            List<PolicyApproverAndReviewer> existingReviewers =
-                    policyApproverAndReviewerRepository.findByPolicyAndRole(policy, PolicyRole.REVIEWER);
-
-            // Get all existing approvers for the policy
-            List<PolicyApproverAndReviewer> existingApprovers =
-                    policyApproverAndReviewerRepository.findByPolicyAndRole(policy, PolicyRole.APPROVER);
-
-            // Create new reviewer records for the new policy file only if they don't already exist
-            for (PolicyApproverAndReviewer existing : existingReviewers) {
-                // Check if the reviewer already exists for the new policy file
-                boolean exists = policyApproverAndReviewerRepository.existsByPolicyAndPolicyFilesAndUserIdAndRole(
-                        policy, savedPolicyFile, existing.getUserId(), PolicyRole.REVIEWER);
-
-                if (!exists) {
-                    PolicyApproverAndReviewer newRecord = new PolicyApproverAndReviewer();
-                    newRecord.setUserId(existing.getUserId());
-                    newRecord.setRole(PolicyRole.REVIEWER);
-                    newRecord.setPolicy(policy);
-                    newRecord.setPolicyFiles(savedPolicyFile);
-                    newRecord.setApproved(false);
-                    newRecord.setRejectedReason(null);
-                    policyApproverAndReviewerRepository.save(newRecord);
-                }
-            }
-
-            // Create new approver records for the new policy file only if they don't already exist
-            for (PolicyApproverAndReviewer existing : existingApprovers) {
-                // Check if the approver already exists for the new policy file
-                boolean exists = policyApproverAndReviewerRepository.existsByPolicyAndPolicyFilesAndUserIdAndRole(
-                        policy, savedPolicyFile, existing.getUserId(), PolicyRole.APPROVER);
-
-                if (!exists) {
-                    PolicyApproverAndReviewer newRecord = new PolicyApproverAndReviewer();
-                    newRecord.setUserId(existing.getUserId());
-                    newRecord.setRole(PolicyRole.APPROVER);
-                    newRecord.setPolicy(policy);
-                    newRecord.setPolicyFiles(savedPolicyFile);
-                    newRecord.setApproved(false);
-                    newRecord.setRejectedReason(null);
-                    policyApproverAndReviewerRepository.save(newRecord);
-                }
-            }
+            // Assign the policy's reviewers and approvers to the new file in one statement
+            this.policyFileAssignments.assignMembers(List.of(savedPolicyFile.getPolicyFilesId()));
 
             return savedPolicyFile;
 
         } catch (IOException e) {
-            throw new RuntimeException("Error processing file: " + file.getOriginalFilename(), e);
+            throw new RuntimeException("Error processing file: " + fileName, e);
         }
     }
 
@@ -296,10 +363,109 @@ public class PolicyServiceImpl implements PolicyService {
     }
 
     @Override
+    @Transactional
     public byte[] getPolicyFileContent(Long policyFilesId) {
         PolicyFiles policyFile = this.policyFilesRepository.findById(policyFilesId)
                 .orElseThrow(() -> new RuntimeException("Policy file not found"));
 
-        return FileUtils.decompressFile(policyFile.getFile());
+        try (InputStream content = getPolicyFileResource(policyFile, true).getInputStream()) {
+            return content.readAllBytes();
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading policy file: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getPolicyFileCacheStats() {
+        return this.policyFileCache.stats();
+    }
+
+    @Override
+    public List<PolicyFileRevision> getPolicyFileRevisions(Long policyFilesId) {
+        return this.policyFileHistory.getRevisions(policyFilesId);
+    }
+
+    @Override
+    public PolicyFileRevision getPolicyFileRevision(Long policyFilesId, int revisionNumber) {
+        return this.policyFileHistory.getRevision(policyFilesId, revisionNumber);
+    }
+
+    @Override
+    public Resource getPolicyFileRevisionResource(PolicyFileRevision revision) {
+        try {
+            return new InputStreamResource(this.policyFileHistory.openRevision(revision));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading revision " + revision.getRevisionNumber() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Resource getPolicyFileResource(PolicyFiles policyFile, boolean decode) {
+        return new PolicyFileResource(policyFile, this.policyFileStore, this.policyFileContentRepository,
+                this.policyFileCache, decode);
+    }
+
+    /**
+     * Closes the file's round for the role if its tally has settled the outcome
+     * @return true if the file changed
+     */
+    private boolean settle(PolicyFiles policyFile, PolicyRole role) {
+        if (role == PolicyRole.REVIEWER) {
+            QuorumStrategy.Outcome outcome = this.quorumProperties.getReviewers().toStrategy().evaluate(
+                    policyFile.getReviewersApproved(), policyFile.getReviewersRejected(), policyFile.getReviewersAssigned());
+            if (outcome == QuorumStrategy.Outcome.PENDING) {
+                return false;
+            }
+            closeReview(policyFile, outcome == QuorumStrategy.Outcome.ACCEPTED);
+            return true;
+        }
+        // Approvers may vote early, but the approval only closes once the reviewers have accepted
+        return policyFile.isFinalAcceptance() && closeApprovalIfSettled(policyFile);
+    }
+
+    private void closeReview(PolicyFiles policyFile, boolean accepted) {
+        policyFile.setFinalAcceptance(accepted);
+        policyFile.setStatus(accepted ? "UNDER_APPROVAL" : "REJECTED_BY_REVIEWERS");
+        this.policyApproverAndReviewerRepository.markPendingMoot(policyFile.getPolicyFilesId(), PolicyRole.REVIEWER);
+        if (!accepted) {
+            // Nothing left for the approvers to decide
+            this.policyApproverAndReviewerRepository.markPendingMoot(policyFile.getPolicyFilesId(), PolicyRole.APPROVER);
+        } else {
+            // Approvers who voted before the review closed may already have settled the approval
+            closeApprovalIfSettled(policyFile);
+        }
+    }
+
+    private boolean closeApprovalIfSettled(PolicyFiles policyFile) {
+        QuorumStrategy.Outcome outcome = this.quorumProperties.getApprovers().toStrategy().evaluate(
+                policyFile.getApproversApproved(), policyFile.getApproversRejected(), policyFile.getApproversAssigned());
+        if (outcome == QuorumStrategy.Outcome.PENDING) {
+            return false;
+        }
+        boolean approved = outcome == QuorumStrategy.Outcome.ACCEPTED;
+        policyFile.setFinalApproval(approved);
+        policyFile.setStatus(approved ? "APPROVED" : "REJECTED");
+        this.policyApproverAndReviewerRepository.markPendingMoot(policyFile.getPolicyFilesId(), PolicyRole.APPROVER);
+        return true;
+    }
+
+    private int weightOf(PolicyApproverAndReviewer row) {
+        return row.getWeight() != null ? row.getWeight() : 1;
+    }
+
+    private Optional<PolicyApproverAndReviewer> findDecisionRow(Long policyId, Long policyFileId, Long userId, PolicyRole role) {
+        return this.policyApproverAndReviewerRepository
+                .findByUserIdAndPolicy_PolicyIdAndPolicyFiles_PolicyFilesId(userId, policyId, policyFileId)
+                .stream()
+                .filter(r -> r.getRole() == role)
+                .findFirst();
+    }
+
+    private void bumpRevision(Policy policy) {
+        policy.setRevision(policy.getRevision() + 1);
+    }
+
+    private void bumpRevision(PolicyFiles policyFile) {
+        policyFile.setRevision(policyFile.getRevision() + 1);
     }
 }
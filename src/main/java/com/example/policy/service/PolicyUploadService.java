@@ -0,0 +1,15 @@
+package com.example.policy.service;
+
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.model.PolicyUploadSession;
+
+import java.io.InputStream;
+import java.util.Date;
+
+public interface PolicyUploadService {
+    PolicyUploadSession createUpload(Long policyId, String fileName, String fileType, long fileSize, String version, String status, Date createdDate, Date effectiveStartDate, Date effectiveEndDate);
+    PolicyUploadSession getUpload(String uploadId);
+    PolicyUploadSession putChunk(String uploadId, int index, InputStream content, String sha256);
+    PolicyFiles commitUpload(String uploadId);
+    void abortUpload(String uploadId);
+}
@@ -0,0 +1,384 @@
+package com.example.policy.service;
+
+import com.example.policy.config.UploadProperties;
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.model.PolicyUploadSession;
+import com.example.policy.repository.PolicyFilesRepository;
+import com.example.policy.repository.PolicyRepository;
+import com.example.policy.repository.PolicyUploadSessionRepository;
+import com.example.policy.utils.FileFormats;
+import com.example.policy.utils.FileUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Resumable uploads: chunks are spooled to disk per upload session and streamed into a policy
+ * file on commit. Only one commit of a session runs at a time on any node, and the file is
+ * attached in the same transaction that marks the session committed. A committed session is
+ * kept until its TTL runs out, so a retried commit returns the same file. Sessions left idle
+ * past their TTL are swept with their chunks.
+ */
+@Slf4j
+@Service
+public class PolicyUploadServiceImpl implements PolicyUploadService {
+
+    private final PolicyUploadSessionRepository policyUploadSessionRepository;
+    private final PolicyRepository policyRepository;
+    private final PolicyFilesRepository policyFilesRepository;
+    private final PolicyService policyService;
+    private final UploadProperties uploadProperties;
+    private final PolicyFileValidator policyFileValidator;
+    private final UploadAdmission uploadAdmission;
+    private final TransactionTemplate transactionTemplate;
+    private final Path root;
+
+    public PolicyUploadServiceImpl(PolicyUploadSessionRepository policyUploadSessionRepository,
+                                   PolicyRepository policyRepository, PolicyFilesRepository policyFilesRepository,
+                                   PolicyService policyService, UploadProperties uploadProperties,
+                                   PolicyFileValidator policyFileValidator, UploadAdmission uploadAdmission,
+                                   PlatformTransactionManager transactionManager) throws IOException {
+        this.policyUploadSessionRepository = policyUploadSessionRepository;
+        this.policyRepository = policyRepository;
+        this.policyFilesRepository = policyFilesRepository;
+        this.policyService = policyService;
+        this.uploadProperties = uploadProperties;
+        this.policyFileValidator = policyFileValidator;
+        this.uploadAdmission = uploadAdmission;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.root = Paths.get(uploadProperties.getRoot()).toAbsolutePath();
+        Files.createDirectories(this.root);
+    }
+
+    @Override
+    public PolicyUploadSession createUpload(Long policyId, String fileName, String fileType, long fileSize,
+                                            String version, String status, Date createdDate,
+                                            Date effectiveStartDate, Date effectiveEndDate) {
+        this.policyRepository.findById(policyId)
+                .orElseThrow(() -> new RuntimeException("Policy not found with id: " + policyId));
+        if (fileSize <= 0) {
+            throw new RuntimeException("File size must be greater than zero");
+        }
+        if (fileSize > this.uploadProperties.getMaxFileSize().toBytes()) {
+            throw new RuntimeException("File exceeds the maximum upload size of " + this.uploadProperties.getMaxFileSize());
+        }
+
+        PolicyUploadSession upload = new PolicyUploadSession();
+        upload.setUploadId(UUID.randomUUID().toString());
+        upload.setPolicyId(policyId);
+        upload.setFileName(fileName);
+        upload.setFileType(fileType);
+        upload.setFileSize(fileSize);
+        upload.setChunkSize(this.uploadProperties.getChunkSize().toBytes());
+        upload.setPolicyVersion(version);
+        upload.setStatus(status);
+        upload.setCreatedDate(createdDate);
+        upload.setEffectiveStartDate(effectiveStartDate);
+        upload.setEffectiveEndDate(effectiveEndDate);
+        try {
+            Files.createDirectories(directory(upload.getUploadId()));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create upload directory", e);
+        }
+        upload.setReceivedChunks(new ArrayList<>());
+        return this.policyUploadSessionRepository.save(upload);
+    }
+
+    @Override
+    public PolicyUploadSession getUpload(String uploadId) {
+        PolicyUploadSession upload = findUpload(uploadId);
+        upload.setReceivedChunks(receivedChunks(upload));
+        return upload;
+    }
+
+    @Override
+    public PolicyUploadSession putChunk(String uploadId, int index, InputStream content, String sha256) {
+        PolicyUploadSession upload = findUpload(uploadId);
+        checkNotCommitting(upload);
+        if (index < 0 || index >= upload.getChunkCount()) {
+            throw new RuntimeException("Chunk index out of range: " + index);
+        }
+        if (sha256 == null || sha256.isBlank()) {
+            throw new RuntimeException("Chunk checksum is required");
+        }
+        long expectedLength = upload.getChunkLength(index);
+        byte[] head = new byte[FileFormats.MAGIC_LENGTH];
+        int headLength = 0;
+
+        Path directory = directory(uploadId);
+        Path staging = directory.resolve(UUID.randomUUID() + ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long length = 0;
+            try (DigestInputStream in = new DigestInputStream(content, digest);
+                 OutputStream out = Files.newOutputStream(staging, StandardOpenOption.CREATE_NEW)) {
+                byte[] buffer = new byte[FileUtils.BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    length += read;
+                    if (length > expectedLength) {
+                        throw new RuntimeException("Chunk " + index + " is larger than " + expectedLength + " bytes");
+                    }
+                    if (index == 0 && headLength < head.length) {
+                        int count = Math.min(read, head.length - headLength);
+                        System.arraycopy(buffer, 0, head, headLength, count);
+                        headLength += count;
+                        // The file type is known from its first bytes; refuse the rest of a mislabeled file
+                        if (headLength == head.length || length == expectedLength) {
+                            String invalid = this.policyFileValidator.checkContent(upload.getFileType(), head, headLength);
+                            if (invalid != null) {
+                                throw new RuntimeException(invalid);
+                            }
+                        }
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (length != expectedLength) {
+                throw new RuntimeException("Chunk " + index + " has " + length + " bytes, expected " + expectedLength);
+            }
+            String actual = HexFormat.of().formatHex(digest.digest());
+            if (!actual.equalsIgnoreCase(sha256.trim())) {
+                throw new RuntimeException("Checksum mismatch for chunk " + index);
+            }
+            try (FileChannel channel = FileChannel.open(staging, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            // Only the activity date is written, and only while no commit holds the upload
+            Date now = new Date();
+            Date staleBefore = new Date(now.getTime() - this.uploadProperties.getCommitTimeout().toMillis());
+            if (this.transactionTemplate.execute(status ->
+                    this.policyUploadSessionRepository.touch(uploadId, now, staleBefore)) == 0) {
+                throw new RuntimeException("Upload is being committed: " + uploadId);
+            }
+            upload.setLastModifiedDate(now);
+            // A resent chunk simply replaces the earlier copy
+            Files.move(staging, chunk(uploadId, index),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store chunk " + index + " of upload " + uploadId, e);
+        } finally {
+            try {
+                Files.deleteIfExists(staging);
+            } catch (IOException ignored) {
+                // The staging file is removed with the upload directory
+            }
+        }
+
+        upload.setReceivedChunks(receivedChunks(upload));
+        return upload;
+    }
+
+    @Override
+    public PolicyFiles commitUpload(String uploadId) {
+        PolicyUploadSession upload = findUpload(uploadId);
+        if (upload.getPolicyFilesId() != null) {
+            // A retried commit gets the file the first one created
+            PolicyFiles policyFile = this.policyFilesRepository.findById(upload.getPolicyFilesId())
+                    .orElseThrow(() -> new RuntimeException("Policy file not found with id: " + upload.getPolicyFilesId()));
+            deleteDirectory(uploadId);
+            return policyFile;
+        }
+        List<Integer> received = receivedChunks(upload);
+        if (received.size() != upload.getChunkCount()) {
+            List<Integer> missing = new ArrayList<>();
+            for (int i = 0; i < upload.getChunkCount(); i++) {
+                if (!received.contains(i)) {
+                    missing.add(i);
+                }
+            }
+            throw new RuntimeException("Upload is missing chunks: " + missing);
+        }
+
+        Date now = new Date();
+        Date staleBefore = new Date(now.getTime() - this.uploadProperties.getCommitTimeout().toMillis());
+        if (this.transactionTemplate.execute(status ->
+                this.policyUploadSessionRepository.claimCommit(uploadId, now, staleBefore)) == 0) {
+            throw new RuntimeException("Upload is already being committed: " + uploadId);
+        }
+
+        // Chunks are read back in order and streamed straight through compression into the store
+        InputStreamSource content = () -> new SequenceInputStream(new Enumeration<InputStream>() {
+            private int next;
+
+            @Override
+            public boolean hasMoreElements() {
+                return this.next < upload.getChunkCount();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                try {
+                    return Files.newInputStream(chunk(uploadId, this.next++));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+
+        PolicyFiles policyFile;
+        try {
+            UploadAdmission.Permit permit = this.uploadAdmission.acquire(upload.getFileSize());
+            try {
+                policyFile = this.transactionTemplate.execute(status -> {
+                    PolicyFiles created = this.policyService.addPolicyFile(upload.getPolicyId(), upload.getFileName(),
+                            upload.getFileType(), upload.getFileSize(), content, upload.getPolicyVersion(),
+                            upload.getStatus(), upload.getCreatedDate(), upload.getEffectiveStartDate(),
+                            upload.getEffectiveEndDate());
+                    this.policyUploadSessionRepository.markCommitted(uploadId, created.getPolicyFilesId(), new Date());
+                    return created;
+                });
+            } finally {
+                permit.close();
+            }
+        } catch (RuntimeException e) {
+            // Nothing was attached, so the upload can be committed again
+            this.transactionTemplate.executeWithoutResult(status -> this.policyUploadSessionRepository.releaseCommit(uploadId));
+            throw e;
+        }
+
+        // The session stays, with the id of the file, until it expires, so a retry gets the same file
+        deleteDirectory(uploadId);
+        return policyFile;
+    }
+
+    @Override
+    public void abortUpload(String uploadId) {
+        PolicyUploadSession upload = findUpload(uploadId);
+        checkNotCommitting(upload);
+        removeUpload(uploadId);
+    }
+
+    /**
+     * Deletes upload sessions idle for longer than the session TTL, with their chunks, and
+     * chunk directories whose session is gone
+     */
+    @Scheduled(fixedDelayString = "${policy.upload.sweep-interval:PT1H}",
+            initialDelayString = "${policy.upload.sweep-initial-delay:PT5M}")
+    public void expireUploads() {
+        long now = System.currentTimeMillis();
+        Date cutoff = new Date(now - this.uploadProperties.getSessionTtl().toMillis());
+        Date staleBefore = new Date(now - this.uploadProperties.getCommitTimeout().toMillis());
+        int expired = 0;
+        for (String uploadId : this.policyUploadSessionRepository.findExpired(cutoff, staleBefore)) {
+            try {
+                Integer deleted = this.transactionTemplate.execute(status ->
+                        this.policyUploadSessionRepository.deleteExpired(uploadId, cutoff, staleBefore));
+                if (deleted != null && deleted > 0) {
+                    deleteDirectory(uploadId);
+                    expired++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not expire upload {}: {}", uploadId, e.getMessage());
+            }
+        }
+
+        int orphaned = 0;
+        try (Stream<Path> directories = Files.list(this.root)) {
+            for (Path directory : (Iterable<Path>) directories::iterator) {
+                String uploadId = directory.getFileName().toString();
+                if (!Files.isDirectory(directory) || !isUploadId(uploadId)
+                        || Files.getLastModifiedTime(directory).compareTo(FileTime.fromMillis(cutoff.getTime())) >= 0
+                        || this.policyUploadSessionRepository.existsById(uploadId)) {
+                    continue;
+                }
+                deleteDirectory(uploadId);
+                orphaned++;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not sweep upload directories under {}: {}", this.root, e.getMessage());
+        }
+        if (expired > 0 || orphaned > 0) {
+            log.info("Expired {} abandoned uploads and removed {} orphaned chunk directories", expired, orphaned);
+        }
+    }
+
+    private void removeUpload(String uploadId) {
+        this.policyUploadSessionRepository.deleteById(uploadId);
+        deleteDirectory(uploadId);
+    }
+
+    private void checkNotCommitting(PolicyUploadSession upload) {
+        if (upload.getPolicyFilesId() != null) {
+            throw new RuntimeException("Upload is already committed: " + upload.getUploadId());
+        }
+        if (upload.getCommitStartedDate() != null && upload.getCommitStartedDate().getTime()
+                >= System.currentTimeMillis() - this.uploadProperties.getCommitTimeout().toMillis()) {
+            throw new RuntimeException("Upload is being committed: " + upload.getUploadId());
+        }
+    }
+
+    private static boolean isUploadId(String name) {
+        try {
+            UUID.fromString(name);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private PolicyUploadSession findUpload(String uploadId) {
+        return this.policyUploadSessionRepository.findById(uploadId)
+                .orElseThrow(() -> new RuntimeException("Upload not found with id: " + uploadId));
+    }
+
+    private List<Integer> receivedChunks(PolicyUploadSession upload) {
+        List<Integer> received = new ArrayList<>();
+        for (int i = 0; i < upload.getChunkCount(); i++) {
+            if (Files.exists(chunk(upload.getUploadId(), i))) {
+                received.add(i);
+            }
+        }
+        return received;
+    }
+
+    private Path directory(String uploadId) {
+        // Upload ids are generated here, but they come back in from the URL
+        UUID.fromString(uploadId);
+        return this.root.resolve(uploadId);
+    }
+
+    private Path chunk(String uploadId, int index) {
+        return directory(uploadId).resolve("chunk-" + index);
+    }
+
+    private void deleteDirectory(String uploadId) {
+        Path directory = directory(uploadId);
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to remove upload directory: " + directory, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.policy.service;
+
+/**
+ * Rule deciding a review or approval round from its tally. Tallies are sums of member
+ * weights, each member weighing 1 unless given a weight, so every rule also works as a
+ * weighted vote. A round closes as soon as its outcome can no longer change: once the
+ * approvals reach the required weight, or once the weight still able to approve cannot.
+ * A round with no weight in it never closes, whatever the rule: it waits for members.
+ */
+public interface QuorumStrategy {
+
+    enum Kind { MAJORITY, SUPERMAJORITY, UNANIMOUS, N_OF_M }
+
+    enum Outcome { PENDING, ACCEPTED, REJECTED }
+
+    /**
+     * Approving weight needed to accept, out of the total weight of the round
+     */
+    int required(int total);
+
+    default Outcome evaluate(int approved, int rejected, int total) {
+        if (total <= 0) {
+            return Outcome.PENDING;
+        }
+        int required = required(total);
+        if (approved >= required) {
+            return Outcome.ACCEPTED;
+        }
+        if (total - rejected < required) {
+            return Outcome.REJECTED;
+        }
+        return Outcome.PENDING;
+    }
+
+    // More than half
+    static QuorumStrategy majority() {
+        return total -> total / 2 + 1;
+    }
+
+    // At least the given fraction, e.g. 2/3
+    static QuorumStrategy supermajority(double fraction) {
+        return total -> Math.max(1, (int) Math.ceil(total * fraction - 1e-9));
+    }
+
+    // Everyone; the first rejection decides
+    static QuorumStrategy unanimous() {
+        return total -> total;
+    }
+
+    // A fixed number of approvals, or everyone when the round is smaller
+    static QuorumStrategy nOfM(int required) {
+        return total -> Math.min(required, total);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the settings cannot make a working rule
+     */
+    static QuorumStrategy of(Kind kind, double fraction, int required) {
+        if (kind == null) {
+            throw new IllegalArgumentException("Quorum strategy is not set");
+        }
+        switch (kind) {
+            case MAJORITY:
+                return majority();
+            case SUPERMAJORITY:
+                if (!(fraction > 0 && fraction <= 1)) {
+                    throw new IllegalArgumentException("SUPERMAJORITY fraction must be above 0 and at most 1, got " + fraction);
+                }
+                return supermajority(fraction);
+            case UNANIMOUS:
+                return unanimous();
+            case N_OF_M:
+                if (required <= 0) {
+                    throw new IllegalArgumentException("N_OF_M must require at least one approval, got " + required);
+                }
+                return nOfM(required);
+            default:
+                throw new IllegalArgumentException("Unknown quorum strategy: " + kind);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.policy.service;
+
+import com.example.policy.config.AdmissionProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the uploads compressed and stored at once, by total bytes and by number of
+ * compression slots. Requests over budget wait in a bounded queue for a bounded time
+ * and are then refused with {@link UploadRejectedException}.
+ */
+@Component
+public class UploadAdmission {
+
+    private final AdmissionProperties admissionProperties;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition released = this.lock.newCondition();
+
+    private long inFlightBytes;
+    private int activeUploads;
+    private int queued;
+
+    private long admitted;
+    private long rejected;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    public UploadAdmission(AdmissionProperties admissionProperties) {
+        this.admissionProperties = admissionProperties;
+    }
+
+    /**
+     * Waits up to the configured queue wait for room for {@code bytes}
+     * @throws UploadRejectedException if the queue is full or the wait runs out
+     */
+    public Permit acquire(long bytes) {
+        return acquire(bytes, this.admissionProperties.getMaxQueueWait(), true);
+    }
+
+    /**
+     * Waits as long as needed for room for {@code bytes}; for background work that is
+     * already bounded by its own queue
+     */
+    public Permit acquireBlocking(long bytes) {
+        return acquire(bytes, null, false);
+    }
+
+    public Map<String, Object> stats() {
+        this.lock.lock();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("inFlightBytes", this.inFlightBytes);
+            stats.put("maxInFlightBytes", this.admissionProperties.getMaxInFlightBytes().toBytes());
+            stats.put("activeUploads", this.activeUploads);
+            stats.put("compressionSlots", this.admissionProperties.getCompressionSlots());
+            stats.put("queueDepth", this.queued);
+            stats.put("admitted", this.admitted);
+            stats.put("rejected", this.rejected);
+            stats.put("averageWaitMillis", this.admitted == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.totalWaitNanos / this.admitted));
+            stats.put("maxWaitMillis", TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos));
+            return stats;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private Permit acquire(long bytes, Duration maxWait, boolean boundedQueue) {
+        long start = System.nanoTime();
+        this.lock.lock();
+        try {
+            if (!fits(bytes)) {
+                if (boundedQueue && this.queued >= this.admissionProperties.getMaxQueued()) {
+                    throw reject("Too many uploads waiting");
+                }
+                this.queued++;
+                try {
+                    long remaining = maxWait != null ? maxWait.toNanos() : 0;
+                    while (!fits(bytes)) {
+                        if (maxWait == null) {
+                            this.released.await();
+                        } else if (remaining <= 0) {
+                            throw reject("Upload capacity exhausted");
+                        } else {
+                            remaining = this.released.awaitNanos(remaining);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw reject("Interrupted while waiting for upload capacity");
+                } finally {
+                    this.queued--;
+                }
+            }
+
+            this.inFlightBytes += bytes;
+            this.activeUploads++;
+            long waited = System.nanoTime() - start;
+            this.admitted++;
+            this.totalWaitNanos += waited;
+            this.maxWaitNanos = Math.max(this.maxWaitNanos, waited);
+            return new Permit(bytes);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean fits(long bytes) {
+        if (this.activeUploads == 0) {
+            // A lone upload larger than the whole budget still goes through, one at a time
+            return true;
+        }
+        return this.activeUploads < this.admissionProperties.getCompressionSlots()
+                && this.inFlightBytes + bytes <= this.admissionProperties.getMaxInFlightBytes().toBytes();
+    }
+
+    private UploadRejectedException reject(String message) {
+        this.rejected++;
+        return new UploadRejectedException(message, this.admissionProperties.getRetryAfter().toSeconds());
+    }
+
+    private void release(long bytes) {
+        this.lock.lock();
+        try {
+            this.inFlightBytes -= bytes;
+            this.activeUploads--;
+            this.released.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Admission for one upload; close it when the upload is stored
+     */
+    public class Permit implements AutoCloseable {
+        private final long bytes;
+        private boolean closed;
+
+        private Permit(long bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            if (!this.closed) {
+                this.closed = true;
+                release(this.bytes);
+            }
+        }
+    }
+}
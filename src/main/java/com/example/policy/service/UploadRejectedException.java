@@ -0,0 +1,18 @@
+package com.example.policy.service;
+
+/**
+ * Thrown when an upload cannot be admitted because the server is at capacity
+ */
+public class UploadRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public UploadRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return this.retryAfterSeconds;
+    }
+}
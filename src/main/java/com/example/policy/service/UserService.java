@@ -2,6 +2,8 @@ package com.example.policy.service;
 
 
 
+import com.example.policy.model.PolicyInbox;
+import com.example.policy.model.PolicyRole;
 import com.example.policy.model.User;
 
 import java.util.List;
@@ -11,5 +13,13 @@ public interface UserService {
     List<User> getAllUsers();
     User getUserById(long userId);
     User getUserByEmail(String email);
+
+    /**
+     * Policy files still waiting on the user's decision, reviewer rows before approver rows
+     * @param role only this role, or both when null
+     * @param afterRole role of the last item of the previous page, or null for the first page
+     * @param after policy file id of the last item of the previous page
+     */
+    PolicyInbox getInbox(long userId, PolicyRole role, PolicyRole afterRole, long after, int limit);
 }
 
@@ -1,19 +1,28 @@
 package com.example.policy.service;
 
 
+import com.example.policy.model.PolicyInbox;
+import com.example.policy.model.PolicyInboxItem;
+import com.example.policy.model.PolicyRole;
 import com.example.policy.model.User;
+import com.example.policy.repository.PolicyApproverAndReviewerRepository;
 import com.example.policy.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @AllArgsConstructor
 public class UserServiceImpl implements UserService {
 
+    private static final int MAX_INBOX_PAGE_SIZE = 200;
+
     private UserRepository userRepository;
+    private PolicyApproverAndReviewerRepository policyApproverAndReviewerRepository;
 
     @Override
     public User createUser(User user) {
@@ -57,4 +66,28 @@ public class UserServiceImpl implements UserService {
         return user;
     }
 
+    @Override
+    public PolicyInbox getInbox(long userId, PolicyRole role, PolicyRole afterRole, long after, int limit) {
+        getUserById(userId);
+        List<PolicyRole> roles = role != null ? List.of(role) : List.of(PolicyRole.REVIEWER, PolicyRole.APPROVER);
+        int start = afterRole != null ? roles.indexOf(afterRole) : 0;
+        if (start < 0) {
+            throw new RuntimeException("Invalid inbox position: " + afterRole);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_INBOX_PAGE_SIZE));
+
+        // One index range per role; read one item past the page to know whether another follows
+        List<PolicyInboxItem> items = new ArrayList<>();
+        for (int i = start; i < roles.size() && items.size() <= pageSize; i++) {
+            items.addAll(this.policyApproverAndReviewerRepository.findInbox(userId, roles.get(i),
+                    i == start ? after : 0, PageRequest.of(0, pageSize + 1 - items.size())));
+        }
+        if (items.size() <= pageSize) {
+            return new PolicyInbox(items, null, null);
+        }
+        items = new ArrayList<>(items.subList(0, pageSize));
+        PolicyInboxItem last = items.get(pageSize - 1);
+        return new PolicyInbox(items, last.getRole(), last.getPolicyFilesId());
+    }
+
 }
@@ -0,0 +1,84 @@
+package com.example.policy.service;
+
+import com.example.policy.repository.PolicyApproverAndReviewerRepository;
+import com.example.policy.repository.PolicyFilesRepository;
+import com.example.policy.repository.PolicyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Fills in the vote tallies of policy files created before they existed, and the decided
+ * flag of their reviewer and approver rows. Rows still pending on a round that closed before
+ * closing a round mooted the rest are mooted too, so they leave the inbox. Files are handled
+ * in batches, each in its own transaction, before the application serves requests; once
+ * every file is done this is two queries per start.
+ */
+@Slf4j
+@Component
+public class VoteTallyMigration implements InitializingBean {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final PolicyFilesRepository policyFilesRepository;
+    private final PolicyApproverAndReviewerRepository policyApproverAndReviewerRepository;
+    private final PolicyRepository policyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public VoteTallyMigration(PolicyFilesRepository policyFilesRepository,
+                              PolicyApproverAndReviewerRepository policyApproverAndReviewerRepository,
+                              PolicyRepository policyRepository, PlatformTransactionManager transactionManager) {
+        this.policyFilesRepository = policyFilesRepository;
+        this.policyApproverAndReviewerRepository = policyApproverAndReviewerRepository;
+        this.policyRepository = policyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        int counted = 0;
+        while (true) {
+            List<Long> ids = this.policyFilesRepository.findIdsWithoutVoteCounts(PageRequest.of(0, BATCH_SIZE));
+            if (ids.isEmpty()) {
+                break;
+            }
+            this.transactionTemplate.executeWithoutResult(status -> {
+                this.policyApproverAndReviewerRepository.markLegacyDecisions(ids);
+                this.policyFilesRepository.recountVotes(ids);
+                // Cached copies of the policies no longer match the tallies
+                this.policyRepository.bumpRevisionOfFiles(ids);
+            });
+            counted += ids.size();
+        }
+        if (counted > 0) {
+            log.info("Counted the votes of {} policy files", counted);
+        }
+
+        int closed = 0;
+        long after = 0;
+        while (true) {
+            List<Long> ids = this.policyApproverAndReviewerRepository.findFilesWithClosedPending(after,
+                    PageRequest.of(0, BATCH_SIZE));
+            if (ids.isEmpty()) {
+                break;
+            }
+            closed += this.transactionTemplate.execute(status -> {
+                // In the order decisions take the locks, file first
+                this.policyFilesRepository.lockForDecisions(ids);
+                int mooted = this.policyApproverAndReviewerRepository.markClosedPendingMoot(ids);
+                this.policyFilesRepository.bumpRevision(ids);
+                this.policyRepository.bumpRevisionOfFiles(ids);
+                return mooted;
+            });
+            after = ids.get(ids.size() - 1);
+        }
+        if (closed > 0) {
+            log.info("Closed {} pending decisions on settled policy files", closed);
+        }
+    }
+}
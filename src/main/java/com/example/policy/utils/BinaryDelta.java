@@ -0,0 +1,171 @@
+package com.example.policy.utils;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Binary delta between two versions of a file. The base is indexed in 16-byte blocks and
+ * the target scanned with a rolling hash; matches become COPY ops referencing the base and
+ * the bytes in between become INSERT ops.
+ * Format: {@code [baseLength][targetLength]} then ops {@code 'C' offset length},
+ * {@code 'I' length bytes}, ending with {@code 'E'}. Integers are 4-byte big endian.
+ */
+public class BinaryDelta {
+
+    private static final int BLOCK = 16;
+    private static final int PRIME = 0x01000193;
+    // Candidate blocks checked per position; bounds the cost on repetitive input
+    private static final int MAX_CANDIDATES = 8;
+
+    private static final byte COPY = 'C';
+    private static final byte INSERT = 'I';
+    private static final byte END = 'E';
+
+    // PRIME^BLOCK, used to roll the oldest byte out of the hash
+    private static final int PRIME_POW;
+
+    static {
+        int pow = 1;
+        for (int i = 0; i < BLOCK; i++) {
+            pow *= PRIME;
+        }
+        PRIME_POW = pow;
+    }
+
+    public static byte[] encode(byte[] base, byte[] target) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, target.length / 8));
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(base.length);
+            out.writeInt(target.length);
+
+            int blocks = base.length / BLOCK;
+            int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(blocks));
+            int[] heads = new int[1 << bits];
+            Arrays.fill(heads, -1);
+            int[] next = new int[Math.max(1, blocks)];
+            for (int block = 0; block < blocks; block++) {
+                int slot = slot(hash(base, block * BLOCK), bits);
+                next[block] = heads[slot];
+                heads[slot] = block;
+            }
+
+            int literalStart = 0;
+            int position = 0;
+            int hash = target.length >= BLOCK ? hash(target, 0) : 0;
+            while (blocks > 0 && position + BLOCK <= target.length) {
+                int bestOffset = -1;
+                int bestLength = 0;
+                int bestBack = 0;
+                int candidates = 0;
+                for (int block = heads[slot(hash, bits)]; block != -1 && candidates < MAX_CANDIDATES; block = next[block]) {
+                    candidates++;
+                    int offset = block * BLOCK;
+                    int length = 0;
+                    while (position + length < target.length && offset + length < base.length
+                            && target[position + length] == base[offset + length]) {
+                        length++;
+                    }
+                    if (length < BLOCK) {
+                        continue;
+                    }
+                    // Take back any pending literals that match just before the block
+                    int back = 0;
+                    while (position - back > literalStart && offset - back > 0
+                            && target[position - back - 1] == base[offset - back - 1]) {
+                        back++;
+                    }
+                    if (length + back > bestLength + bestBack) {
+                        bestOffset = offset;
+                        bestLength = length;
+                        bestBack = back;
+                    }
+                }
+
+                if (bestOffset < 0) {
+                    if (position + BLOCK < target.length) {
+                        hash = hash * PRIME - target[position] * PRIME_POW + target[position + BLOCK];
+                    }
+                    position++;
+                    continue;
+                }
+
+                writeInsert(out, target, literalStart, position - bestBack);
+                out.writeByte(COPY);
+                out.writeInt(bestOffset - bestBack);
+                out.writeInt(bestLength + bestBack);
+                position += bestLength;
+                literalStart = position;
+                if (position + BLOCK <= target.length) {
+                    hash = hash(target, position);
+                }
+            }
+            writeInsert(out, target, literalStart, target.length);
+            out.writeByte(END);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Rebuilds the target from its base and a delta made by {@link #encode}
+     * @throws RuntimeException if the delta is corrupt or was made against another base
+     */
+    public static byte[] apply(byte[] base, byte[] delta) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta))) {
+            int baseLength = in.readInt();
+            int targetLength = in.readInt();
+            if (baseLength != base.length) {
+                throw new RuntimeException("Delta expects a base of " + baseLength + " bytes, got " + base.length);
+            }
+            byte[] target = new byte[targetLength];
+            int position = 0;
+            while (true) {
+                byte op = in.readByte();
+                if (op == END) {
+                    break;
+                }
+                if (op == COPY) {
+                    int offset = in.readInt();
+                    int length = in.readInt();
+                    System.arraycopy(base, offset, target, position, length);
+                    position += length;
+                } else if (op == INSERT) {
+                    int length = in.readInt();
+                    in.readFully(target, position, length);
+                    position += length;
+                } else {
+                    throw new RuntimeException("Delta is corrupt: unknown op " + op);
+                }
+            }
+            if (position != targetLength) {
+                throw new RuntimeException("Delta is corrupt: rebuilt " + position + " of " + targetLength + " bytes");
+            }
+            return target;
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("Delta is corrupt: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeInsert(DataOutputStream out, byte[] target, int from, int to) throws IOException {
+        if (to > from) {
+            out.writeByte(INSERT);
+            out.writeInt(to - from);
+            out.write(target, from, to - from);
+        }
+    }
+
+    private static int slot(int hash, int bits) {
+        return (hash * 0x9E3779B1) >>> (32 - bits);
+    }
+
+    private static int hash(byte[] data, int offset) {
+        int hash = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            hash = hash * PRIME + data[offset + i];
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.policy.utils;
+
+import java.io.InputStream;
+
+/**
+ * zlib-wrapped deflate at a configurable level. The level only affects encoding, so every
+ * level shares the same codec id. The output is what HTTP calls the "deflate" content-coding.
+ */
+public class DeflateCodec implements PolicyFileCodec {
+
+    public static final String ID = "deflate";
+
+    private final int level;
+
+    public DeflateCodec(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public InputStream encode(InputStream raw) {
+        return FileUtils.compressingStream(raw, this.level, false);
+    }
+
+    @Override
+    public InputStream encodeParallel(InputStream raw, int blockSize) {
+        return new ParallelDeflateInputStream(raw, this.level, blockSize);
+    }
+
+    @Override
+    public InputStream decode(InputStream encoded) {
+        return FileUtils.decompressingStream(encoded);
+    }
+
+    @Override
+    public String getHttpContentEncoding() {
+        return "deflate";
+    }
+}
@@ -1,47 +1,96 @@
 package com.example.policy.utils;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 public class FileFormats {
 
+	// Not Set.of/List.of: callers pass the part's content type, which is null when the part has
+	// none, and contains(null) must answer false rather than throw
+	private static final Set<String> CERTIFICATE_FORMATS = formats("image/png", "image/jpeg", "image/jpg", "application/pdf");
+	private static final List<String> USER_PROFILE_PICTURE_FORMATS = Collections.unmodifiableList(Arrays.asList("image/jpeg", "image/jpg", "image/png"));
+	private static final Set<String> CHARTER_FILE_FORMATS = formats("application/pdf", "image/jpeg", "image/jpg", "image/png");
+	private static final Set<String> PROPOSAL_FILE_FORMATS = formats("application/pdf", "image/jpeg", "image/jpg", "image/png");
+	private static final Set<String> ACCOUNT_FILE_FORMATS = formats("application/pdf");
+
+	// Bytes needed by sniffContentType
+	public static final int MAGIC_LENGTH = 8;
+
+	private static final byte[] PDF_MAGIC = {'%', 'P', 'D', 'F', '-'};
+	private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+	private static Set<String> formats(String... contentTypes) {
+		return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(contentTypes)));
+	}
+
 	public static Set<String> certificateFormats() {
-		Set<String> set = new HashSet<String>();
-		set.add("image/png");
-		set.add("image/jpeg");
-		set.add("image/jpg");
-		set.add("application/pdf");
-		return set;
+		return CERTIFICATE_FORMATS;
 	}
 	public static List<String> userProfilePictureFormat() {
-		List<String> imagesType = new ArrayList<>();
-		imagesType.add("image/jpeg");
-		imagesType.add("image/jpg");
-		imagesType.add("image/png");
-		return imagesType;
+		return USER_PROFILE_PICTURE_FORMATS;
 	}
 	public static Set<String> charterFileFormat() {
-		Set<String> set = new HashSet<String>();
-		set.add("application/pdf");
-		set.add("image/jpeg");
-		set.add("image/jpg");
-		set.add("image/png");
-		return set;
+		return CHARTER_FILE_FORMATS;
 	}
 
 	public static Set<String> proposalFileFormat() {
-		Set<String> set = new HashSet<String>();
-		set.add("application/pdf");
-		set.add("image/jpeg");
-		set.add("image/jpg");
-		set.add("image/png");
-		return set;
+		return PROPOSAL_FILE_FORMATS;
 	}
 
 
-    public static Set<String> accountFileFormat() {
-		Set<String> set = new HashSet<String>();
-		set.add("application/pdf");
-		return set;
-    }
-}
+	public static Set<String> accountFileFormat() {
+		return ACCOUNT_FILE_FORMATS;
+	}
 
+	/**
+	 * Detects the file type from its leading bytes
+	 * @param head - at least the first {@link #MAGIC_LENGTH} bytes of the file, or all of a shorter file
+	 * @param length - number of valid bytes in head
+	 * @return application/pdf, image/png or image/jpeg; null when not recognised
+	 */
+	public static String sniffContentType(byte[] head, int length) {
+		if (startsWith(head, length, PDF_MAGIC)) {
+			return "application/pdf";
+		}
+		if (startsWith(head, length, PNG_MAGIC)) {
+			return "image/png";
+		}
+		if (startsWith(head, length, JPEG_MAGIC)) {
+			return "image/jpeg";
+		}
+		return null;
+	}
+
+	/**
+	 * Checks that the leading bytes of a file match the content type the client declared
+	 */
+	public static boolean matchesContentType(String declaredType, byte[] head, int length) {
+		String sniffed = sniffContentType(head, length);
+		if (sniffed == null || declaredType == null) {
+			return false;
+		}
+		return sniffed.equals(declaredType) || ("image/jpeg".equals(sniffed) && "image/jpg".equals(declaredType));
+	}
+
+	/**
+	 * Reads up to {@link #MAGIC_LENGTH} bytes from the start of a stream
+	 * @return the bytes read; shorter only when the stream is
+	 */
+	public static byte[] readMagic(InputStream in) throws IOException {
+		return in.readNBytes(MAGIC_LENGTH);
+	}
+
+	private static boolean startsWith(byte[] head, int length, byte[] magic) {
+		if (length < magic.length) {
+			return false;
+		}
+		for (int i = 0; i < magic.length; i++) {
+			if (head[i] != magic[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
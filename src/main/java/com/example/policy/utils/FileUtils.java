@@ -1,56 +1,399 @@
 package com.example.policy.utils;
 
 
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public class FileUtils {
-	
+
+	public static final int BUFFER_SIZE = 8 * 1024;
+
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	// The byte[] helpers have zlib write into a pooled direct buffer and copy from it straight into the result
 	public static byte[] compressFile(byte [] data) {
-		
-		Deflater deflater = new Deflater();
-		deflater.setLevel(Deflater.BEST_COMPRESSION);
-		deflater.setInput(data);
-		deflater.finish();
-		
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-		byte[] tmp = new byte[4*1024];
-		
-		while(!deflater.finished()) {
-			int size = deflater.deflate(tmp);
-			outputStream.write(tmp,0,size);
-		}
-		
+		Deflater deflater = ZlibPool.borrowDeflater(Deflater.BEST_COMPRESSION, false);
+		ByteBuffer buffer = ZlibPool.borrowBuffer();
 		try {
-			outputStream.close();
-		}catch(Exception ignored) {
-			
+			deflater.setInput(data);
+			deflater.finish();
+
+			byte[] out = new byte[Math.max(64, data.length / 2)];
+			int length = 0;
+			while (!deflater.finished()) {
+				buffer.clear();
+				deflater.deflate(buffer);
+				out = append(out, length, buffer.flip());
+				length += buffer.limit();
+			}
+			return Arrays.copyOf(out, length);
+		} finally {
+			ZlibPool.release(buffer);
+			ZlibPool.release(deflater, Deflater.BEST_COMPRESSION, false);
 		}
-		return outputStream.toByteArray();
 	}
-	
-	
+
+	/**
+	 * Deflates {@code in} into {@code out} through a fixed-size buffer, so heap use
+	 * stays the same whatever the size of the input. {@code out} is closed when done.
+	 */
+	public static void compressFile(InputStream in, OutputStream out) throws IOException {
+		Deflater deflater = ZlibPool.borrowDeflater(Deflater.BEST_COMPRESSION, false);
+		try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater, BUFFER_SIZE)) {
+			in.transferTo(deflaterOut);
+			deflaterOut.finish();
+		} finally {
+			ZlibPool.release(deflater, Deflater.BEST_COMPRESSION, false);
+		}
+	}
+
+	/**
+	 * Inflates {@code data}.
+	 * @throws RuntimeException if the data is truncated or corrupt
+	 */
 	public static byte[] decompressFile(byte[] data) {
-		Inflater inflater = new Inflater();
-		inflater.setInput(data);
-		
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-		byte[] tmp = new byte[4*1024];
-		
+		Inflater inflater = ZlibPool.borrowInflater(false);
+		ByteBuffer buffer = ZlibPool.borrowBuffer();
 		try {
-			while(!inflater.finished()) {
-				int count = inflater.inflate(tmp);
-				outputStream.write(tmp,0,count);
+			inflater.setInput(data);
+
+			byte[] out = new byte[(int) Math.min((long) data.length * 2, MAX_ARRAY_SIZE)];
+			int length = 0;
+			while (!inflater.finished()) {
+				buffer.clear();
+				int count = inflater.inflate(buffer);
+				if (count == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new RuntimeException("Compressed data is truncated");
+				}
+				out = append(out, length, buffer.flip());
+				length += count;
 			}
-			outputStream.close();	
-		} catch (Exception ignored) {
-			// TODO: handle exception	
+			return Arrays.copyOf(out, length);
+		} catch (DataFormatException e) {
+			throw new RuntimeException("Compressed data is corrupt: " + e.getMessage(), e);
+		} finally {
+			ZlibPool.release(buffer);
+			ZlibPool.release(inflater, false);
+		}
+	}
+
+	// Copies the rest of buffer into out at length, growing out first if it is too small
+	private static byte[] append(byte[] out, int length, ByteBuffer buffer) {
+		long needed = (long) length + buffer.remaining();
+		if (needed > MAX_ARRAY_SIZE) {
+			throw new RuntimeException("Content is too large for one array");
+		}
+		if (needed > out.length) {
+			out = Arrays.copyOf(out, (int) Math.min(Math.max((long) out.length * 2, needed), MAX_ARRAY_SIZE));
 		}
-		return outputStream.toByteArray();
-		
-		
+		buffer.get(out, length, buffer.remaining());
+		return out;
+	}
+
+	/**
+	 * Inflates {@code in} into {@code out} through a fixed-size buffer.
+	 * {@code out} is left open.
+	 * @return number of inflated bytes written
+	 * @throws java.io.EOFException if the data is truncated
+	 * @throws java.util.zip.ZipException if the data is corrupt
+	 */
+	public static long decompressFile(InputStream in, OutputStream out) throws IOException {
+		try (InputStream inflating = decompressingStream(in)) {
+			return inflating.transferTo(out);
+		}
+	}
+
+	/**
+	 * Returns a stream that inflates {@code in} lazily with a pooled inflater. Closing it
+	 * closes {@code in} and hands the inflater back. Truncated input fails with an
+	 * EOFException and corrupt input with a ZipException.
+	 */
+	public static InputStream decompressingStream(InputStream in) {
+		return decompressingStream(in, false);
+	}
+
+	/**
+	 * Same as {@link #decompressingStream(InputStream)}; with {@code nowrap} the input is
+	 * raw deflate without the zlib header and trailer.
+	 */
+	public static InputStream decompressingStream(InputStream in, boolean nowrap) {
+		Inflater inflater = ZlibPool.borrowInflater(nowrap);
+		return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+			private boolean released;
+
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					if (!this.released) {
+						this.released = true;
+						ZlibPool.release(inflater, nowrap);
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a stream that yields the deflated form of {@code in}, read lazily through a
+	 * pooled deflater. Closing it closes {@code in} and hands the deflater back.
+	 */
+	public static InputStream compressingStream(InputStream in, int level, boolean nowrap) {
+		Deflater deflater = ZlibPool.borrowDeflater(level, nowrap);
+		return new DeflaterInputStream(in, deflater, BUFFER_SIZE) {
+			private boolean released;
+
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					if (!this.released) {
+						this.released = true;
+						ZlibPool.release(deflater, level, nowrap);
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Reads a buffer as a stream, without copying it first. {@code skip} moves the position
+	 * and {@code transferTo} writes the remaining bytes in one call.
+	 */
+	public static InputStream bufferStream(ByteBuffer buffer) {
+		return new InputStream() {
+			@Override
+			public int read() {
+				return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if (len == 0) {
+					return 0;
+				}
+				if (!buffer.hasRemaining()) {
+					return -1;
+				}
+				int count = Math.min(len, buffer.remaining());
+				buffer.get(b, off, count);
+				return count;
+			}
+
+			@Override
+			public long skip(long n) {
+				int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+				buffer.position(buffer.position() + skipped);
+				return skipped;
+			}
+
+			@Override
+			public int available() {
+				return buffer.remaining();
+			}
+
+			@Override
+			public long transferTo(OutputStream out) throws IOException {
+				int remaining = buffer.remaining();
+				Channels.newChannel(out).write(buffer);
+				return remaining;
+			}
+		};
+	}
+
+	/**
+	 * Wraps a file channel in a stream whose {@code skip} is a seek and whose
+	 * {@code transferTo} hands the copy to {@link FileChannel#transferTo}, so the
+	 * bytes are not pulled through a heap buffer by the caller.
+	 */
+	public static InputStream channelStream(FileChannel channel) {
+		return new InputStream() {
+			private final InputStream delegate = Channels.newInputStream(channel);
+
+			@Override
+			public int read() throws IOException {
+				return this.delegate.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return this.delegate.read(b, off, len);
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				long position = channel.position();
+				long skipped = Math.max(0, Math.min(n, channel.size() - position));
+				channel.position(position + skipped);
+				return skipped;
+			}
+
+			@Override
+			public int available() throws IOException {
+				return (int) Math.min(Integer.MAX_VALUE, channel.size() - channel.position());
+			}
+
+			@Override
+			public long transferTo(OutputStream out) throws IOException {
+				WritableByteChannel target = Channels.newChannel(out);
+				long position = channel.position();
+				long size = channel.size();
+				long transferred = 0;
+				while (position + transferred < size) {
+					transferred += channel.transferTo(position + transferred, size - position - transferred, target);
+				}
+				channel.position(size);
+				return transferred;
+			}
+
+			@Override
+			public void close() throws IOException {
+				channel.close();
+			}
+		};
+	}
+
+	/**
+	 * Streams {@code length} bytes of a file channel starting at {@code start}, such as one
+	 * entry of a pack segment. Reads are positional, {@code skip} is a seek and
+	 * {@code transferTo} uses {@link FileChannel#transferTo}.
+	 */
+	public static InputStream channelStream(FileChannel channel, long start, long length) {
+		return new InputStream() {
+			private final long end = start + length;
+			private long position = start;
+
+			@Override
+			public int read() throws IOException {
+				byte[] one = new byte[1];
+				return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (len == 0) {
+					return 0;
+				}
+				if (this.position >= this.end) {
+					return -1;
+				}
+				int count = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, this.end - this.position)), this.position);
+				if (count < 0) {
+					throw new EOFException("Channel ended before the expected length");
+				}
+				this.position += count;
+				return count;
+			}
+
+			@Override
+			public long skip(long n) {
+				long skipped = Math.max(0, Math.min(n, this.end - this.position));
+				this.position += skipped;
+				return skipped;
+			}
+
+			@Override
+			public int available() {
+				return (int) Math.min(Integer.MAX_VALUE, this.end - this.position);
+			}
+
+			@Override
+			public long transferTo(OutputStream out) throws IOException {
+				WritableByteChannel target = Channels.newChannel(out);
+				long transferred = 0;
+				while (this.position < this.end) {
+					long count = channel.transferTo(this.position, this.end - this.position, target);
+					if (count <= 0 && this.position >= channel.size()) {
+						throw new EOFException("Channel ended before the expected length");
+					}
+					this.position += count;
+					transferred += count;
+				}
+				return transferred;
+			}
+
+			@Override
+			public void close() throws IOException {
+				channel.close();
+			}
+		};
+	}
+
+	/**
+	 * Reads a stream that must hold exactly {@code length} bytes, such as an archive entry
+	 * whose declared size was checked against a limit. Fails as soon as the content runs
+	 * past the length, so a forged size or an inflation bomb is never read further, and
+	 * fails at the end if the content was shorter.
+	 */
+	public static InputStream exactLengthStream(InputStream in, long length) {
+		return new FilterInputStream(in) {
+			private long count;
+
+			@Override
+			public int read() throws IOException {
+				byte[] one = new byte[1];
+				return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (len == 0) {
+					return 0;
+				}
+				if (this.count >= length) {
+					if (this.in.read() != -1) {
+						throw new IOException("Content is longer than its declared " + length + " bytes");
+					}
+					return -1;
+				}
+				int count = this.in.read(b, off, (int) Math.min(len, length - this.count));
+				if (count < 0) {
+					throw new EOFException("Content ended after " + this.count + " of its declared " + length + " bytes");
+				}
+				this.count += count;
+				return count;
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(0, n))];
+				long skipped = 0;
+				while (skipped < n) {
+					int count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+					if (count < 0) {
+						break;
+					}
+					skipped += count;
+				}
+				return skipped;
+			}
+
+			@Override
+			public int available() throws IOException {
+				return (int) Math.min(this.in.available(), length - this.count);
+			}
+
+			@Override
+			public boolean markSupported() {
+				return false;
+			}
+		};
 	}
-	
 
 }
@@ -0,0 +1,284 @@
+package com.example.policy.utils;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pure-Java LZ77 codec using the LZ4 block sequence format, for content where encode speed
+ * matters more than ratio. Input is cut into independent 64KB blocks, each written as
+ * {@code [flag][rawLength][encodedLength][bytes]}: flag 0 means the block is stored raw
+ * because it did not shrink, flag 1 means it is LZ encoded.
+ */
+public class LzCodec implements PolicyFileCodec {
+
+    public static final String ID = "lz";
+
+    static final int BLOCK_SIZE = 64 * 1024;
+    private static final int MIN_MATCH = 4;
+    // Matches must leave the last bytes of a block as literals, as in LZ4
+    private static final int LAST_LITERALS = 5;
+    private static final int HASH_BITS = 14;
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public InputStream encode(InputStream raw) {
+        return new BlockInputStream(raw) {
+            private final byte[] block = new byte[BLOCK_SIZE];
+            private final byte[] encoded = new byte[maxEncodedLength(BLOCK_SIZE)];
+            private final int[] table = new int[1 << HASH_BITS];
+
+            @Override
+            protected int nextBlock() throws IOException {
+                int length = this.source.readNBytes(this.block, 0, BLOCK_SIZE);
+                if (length == 0) {
+                    return -1;
+                }
+                int encodedLength = compress(this.block, length, this.encoded, this.table);
+                boolean stored = encodedLength >= length;
+                this.buffer = ensure(this.buffer, 9 + length);
+                this.buffer[0] = (byte) (stored ? 0 : 1);
+                writeInt(this.buffer, 1, length);
+                writeInt(this.buffer, 5, stored ? length : encodedLength);
+                System.arraycopy(stored ? this.block : this.encoded, 0, this.buffer, 9, stored ? length : encodedLength);
+                return 9 + (stored ? length : encodedLength);
+            }
+        };
+    }
+
+    @Override
+    public InputStream decode(InputStream encoded) {
+        return new BlockInputStream(encoded) {
+            private final DataInputStream in = new DataInputStream(this.source);
+            private byte[] input = new byte[0];
+
+            @Override
+            protected int nextBlock() throws IOException {
+                int flag = this.in.read();
+                if (flag < 0) {
+                    return -1;
+                }
+                int rawLength;
+                int encodedLength;
+                try {
+                    rawLength = this.in.readInt();
+                    encodedLength = this.in.readInt();
+                } catch (EOFException e) {
+                    throw new IOException("Truncated LZ block header");
+                }
+                if (rawLength < 0 || rawLength > BLOCK_SIZE || encodedLength < 0 || encodedLength > maxEncodedLength(BLOCK_SIZE)) {
+                    throw new IOException("Corrupt LZ block header");
+                }
+                this.buffer = ensure(this.buffer, rawLength);
+                if (flag == 0) {
+                    this.in.readFully(this.buffer, 0, rawLength);
+                    return rawLength;
+                }
+                this.input = ensure(this.input, encodedLength);
+                this.in.readFully(this.input, 0, encodedLength);
+                if (decompress(this.input, encodedLength, this.buffer, rawLength) != rawLength) {
+                    throw new IOException("Corrupt LZ block");
+                }
+                return rawLength;
+            }
+        };
+    }
+
+    @Override
+    public String getHttpContentEncoding() {
+        return null;
+    }
+
+    static int maxEncodedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    static int compress(byte[] src, int length, byte[] dst, int[] table) {
+        java.util.Arrays.fill(table, -1);
+        int anchor = 0;
+        int position = 0;
+        int out = 0;
+        int matchLimit = length - LAST_LITERALS;
+
+        while (position + MIN_MATCH <= matchLimit) {
+            int sequence = readInt(src, position);
+            int hash = (sequence * -1640531535) >>> (32 - HASH_BITS);
+            int candidate = table[hash];
+            table[hash] = position;
+
+            if (candidate < 0 || position - candidate > 0xFFFF || readInt(src, candidate) != sequence) {
+                position++;
+                continue;
+            }
+
+            int matchLength = MIN_MATCH;
+            while (position + matchLength < matchLimit && src[candidate + matchLength] == src[position + matchLength]) {
+                matchLength++;
+            }
+
+            out = writeSequence(src, anchor, position - anchor, position - candidate, matchLength, dst, out);
+            position += matchLength;
+            anchor = position;
+        }
+
+        // Trailing literals, with no match
+        return writeSequence(src, anchor, length - anchor, 0, 0, dst, out);
+    }
+
+    static int decompress(byte[] src, int length, byte[] dst, int capacity) throws IOException {
+        int in = 0;
+        int out = 0;
+        while (in < length) {
+            int token = src[in++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == 15) {
+                int extra;
+                do {
+                    if (in >= length) {
+                        throw new IOException("Corrupt LZ block");
+                    }
+                    extra = src[in++] & 0xFF;
+                    literalLength += extra;
+                } while (extra == 255);
+            }
+            if (in + literalLength > length || out + literalLength > capacity) {
+                throw new IOException("Corrupt LZ block");
+            }
+            System.arraycopy(src, in, dst, out, literalLength);
+            in += literalLength;
+            out += literalLength;
+
+            if (in == length) {
+                break;
+            }
+
+            if (in + 2 > length) {
+                throw new IOException("Corrupt LZ block");
+            }
+            int offset = (src[in] & 0xFF) | (src[in + 1] & 0xFF) << 8;
+            in += 2;
+            int matchLength = token & 0x0F;
+            if (matchLength == 15) {
+                int extra;
+                do {
+                    if (in >= length) {
+                        throw new IOException("Corrupt LZ block");
+                    }
+                    extra = src[in++] & 0xFF;
+                    matchLength += extra;
+                } while (extra == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (offset == 0 || offset > out || out + matchLength > capacity) {
+                throw new IOException("Corrupt LZ block");
+            }
+            // Byte by byte, since the match may overlap the bytes it produces
+            for (int i = 0; i < matchLength; i++) {
+                dst[out + i] = dst[out - offset + i];
+            }
+            out += matchLength;
+        }
+        return out;
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, int offset, int matchLength,
+                                     byte[] dst, int out) {
+        int tokenPosition = out++;
+        int token = Math.min(literalLength, 15) << 4;
+        if (literalLength >= 15) {
+            out = writeLength(literalLength - 15, dst, out);
+        }
+        System.arraycopy(src, literalStart, dst, out, literalLength);
+        out += literalLength;
+
+        if (matchLength > 0) {
+            dst[out++] = (byte) offset;
+            dst[out++] = (byte) (offset >>> 8);
+            int length = matchLength - MIN_MATCH;
+            token |= Math.min(length, 15);
+            if (length >= 15) {
+                out = writeLength(length - 15, dst, out);
+            }
+        }
+        dst[tokenPosition] = (byte) token;
+        return out;
+    }
+
+    private static int writeLength(int length, byte[] dst, int out) {
+        while (length >= 255) {
+            dst[out++] = (byte) 255;
+            length -= 255;
+        }
+        dst[out++] = (byte) length;
+        return out;
+    }
+
+    private static int readInt(byte[] src, int position) {
+        return (src[position] & 0xFF) | (src[position + 1] & 0xFF) << 8
+                | (src[position + 2] & 0xFF) << 16 | (src[position + 3] & 0xFF) << 24;
+    }
+
+    private static void writeInt(byte[] dst, int position, int value) {
+        dst[position] = (byte) (value >>> 24);
+        dst[position + 1] = (byte) (value >>> 16);
+        dst[position + 2] = (byte) (value >>> 8);
+        dst[position + 3] = (byte) value;
+    }
+
+    private static byte[] ensure(byte[] buffer, int length) {
+        return buffer != null && buffer.length >= length ? buffer : new byte[length];
+    }
+
+    /**
+     * Serves bytes one block at a time; subclasses fill {@link #buffer} in {@link #nextBlock()}.
+     */
+    private abstract static class BlockInputStream extends InputStream {
+        protected final InputStream source;
+        protected byte[] buffer;
+        private int position;
+        private int limit;
+
+        BlockInputStream(InputStream source) {
+            this.source = source;
+        }
+
+        /** Fills the buffer with the next block and returns its length, or -1 at end of input. */
+        protected abstract int nextBlock() throws IOException;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (this.position == this.limit) {
+                int next = nextBlock();
+                if (next < 0) {
+                    return -1;
+                }
+                this.position = 0;
+                this.limit = next;
+            }
+            int count = Math.min(len, this.limit - this.position);
+            System.arraycopy(this.buffer, this.position, b, off, count);
+            this.position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.source.close();
+        }
+    }
+}
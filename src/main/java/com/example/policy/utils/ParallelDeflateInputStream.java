@@ -0,0 +1,191 @@
+package com.example.policy.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * pigz-style parallel deflate. The input is cut into fixed-size blocks that are compressed
+ * independently on a ForkJoinPool. Each block except the last ends with a full flush, and the
+ * blocks are joined between a zlib header and an Adler-32 trailer. The result is one valid
+ * zlib stream that any Inflater reads. At most {@code parallelism + 1} blocks are held in memory at a time.
+ * Closing the stream early stops the blocks still being compressed and waits for them to let go.
+ */
+public class ParallelDeflateInputStream extends InputStream {
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	// A block is fed to the deflater in slices so a closed stream is noticed between them
+	private static final int SLICE = 64 * 1024;
+	private static final AtomicInteger COMPRESSING = new AtomicInteger();
+
+	private final InputStream source;
+	private final int level;
+	private final int blockSize;
+	private final int maxInFlight;
+	private final Adler32 adler = new Adler32();
+	private final Deque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+
+	private byte[] lookahead;
+	private boolean sourceDone;
+	private boolean trailerWritten;
+	private volatile boolean closed;
+
+	private byte[] current;
+	private int position;
+
+	public ParallelDeflateInputStream(InputStream source, int level, int blockSize) {
+		this.source = source;
+		this.level = level;
+		this.blockSize = blockSize;
+		this.maxInFlight = POOL.getParallelism() + 1;
+		this.current = zlibHeader(level);
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] single = new byte[1];
+		return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		while (this.current == null || this.position == this.current.length) {
+			if (!advance()) {
+				return -1;
+			}
+		}
+		int count = Math.min(len, this.current.length - this.position);
+		System.arraycopy(this.current, this.position, b, off, count);
+		this.position += count;
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		// Blocks already running see the flag at their next slice; none is left compressing after close
+		this.closed = true;
+		for (CompletableFuture<byte[]> future : this.inFlight) {
+			try {
+				future.join();
+			} catch (CompletionException | CancellationException ignored) {
+			}
+		}
+		this.inFlight.clear();
+		this.source.close();
+	}
+
+	/** Blocks being compressed right now, across all streams. */
+	static int compressing() {
+		return COMPRESSING.get();
+	}
+
+	private boolean advance() throws IOException {
+		submitBlocks();
+		CompletableFuture<byte[]> next = this.inFlight.poll();
+		if (next != null) {
+			this.current = join(next);
+		} else if (!this.trailerWritten) {
+			this.trailerWritten = true;
+			this.current = adlerTrailer(this.adler.getValue());
+		} else {
+			return false;
+		}
+		this.position = 0;
+		return true;
+	}
+
+	private void submitBlocks() throws IOException {
+		if (this.lookahead == null && !this.sourceDone) {
+			// First call: the first block is submitted even when the input is empty
+			this.lookahead = this.source.readNBytes(this.blockSize);
+		}
+		while (this.inFlight.size() < this.maxInFlight && this.lookahead != null) {
+			byte[] block = this.lookahead;
+			this.lookahead = block.length == this.blockSize ? this.source.readNBytes(this.blockSize) : null;
+			if (this.lookahead != null && this.lookahead.length == 0) {
+				this.lookahead = null;
+			}
+			boolean last = this.lookahead == null;
+			this.sourceDone = last;
+			this.adler.update(block);
+			this.inFlight.add(CompletableFuture.supplyAsync(() -> compressBlock(block, last), POOL));
+		}
+	}
+
+	private byte[] compressBlock(byte[] block, boolean last) {
+		COMPRESSING.incrementAndGet();
+		Deflater deflater = ZlibPool.borrowDeflater(this.level, true);
+		try {
+			byte[] out = new byte[block.length + block.length / 1000 + 64];
+			int length = 0;
+			int offset = 0;
+			while (true) {
+				if (this.closed || Thread.currentThread().isInterrupted()) {
+					throw new CancellationException("Stream closed");
+				}
+				int sliceLength = Math.min(SLICE, block.length - offset);
+				boolean lastSlice = offset + sliceLength == block.length;
+				deflater.setInput(block, offset, sliceLength);
+				offset += sliceLength;
+				if (lastSlice && last) {
+					deflater.finish();
+				}
+				int flush = lastSlice && !last ? Deflater.FULL_FLUSH : Deflater.NO_FLUSH;
+				while (true) {
+					if (length == out.length) {
+						out = Arrays.copyOf(out, out.length * 2);
+					}
+					int count = deflater.deflate(out, length, out.length - length, flush);
+					length += count;
+					if (lastSlice && last ? deflater.finished() : (deflater.needsInput() && length < out.length)) {
+						break;
+					}
+				}
+				if (lastSlice) {
+					return Arrays.copyOf(out, length);
+				}
+			}
+		} finally {
+			ZlibPool.release(deflater, this.level, true);
+			COMPRESSING.decrementAndGet();
+		}
+	}
+
+	private static byte[] join(CompletableFuture<byte[]> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw new IOException("Parallel compression failed: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	private static byte[] zlibHeader(int level) {
+		// CMF 0x78 = deflate with a 32K window; FLG carries the level hint and the check bits
+		if (level == Deflater.BEST_SPEED || level == Deflater.NO_COMPRESSION) {
+			return new byte[]{0x78, 0x01};
+		}
+		if (level >= 2 && level <= 5) {
+			return new byte[]{0x78, 0x5E};
+		}
+		if (level == Deflater.DEFAULT_COMPRESSION || level == 6) {
+			return new byte[]{0x78, (byte) 0x9C};
+		}
+		return new byte[]{0x78, (byte) 0xDA};
+	}
+
+	private static byte[] adlerTrailer(long adler) {
+		return new byte[]{(byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8), (byte) adler};
+	}
+}
@@ -0,0 +1,30 @@
+package com.example.policy.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Encoding applied to policy file content before it is written to the file store.
+ * The codec id is recorded on each PolicyFiles row so reads can decode it.
+ */
+public interface PolicyFileCodec {
+
+    String getId();
+
+    /** Returns a stream yielding the encoded form of {@code raw}, produced lazily. */
+    InputStream encode(InputStream raw) throws IOException;
+
+    /**
+     * Same as {@link #encode(InputStream)}, spreading the work over several threads in blocks
+     * of {@code blockSize} bytes where the codec supports it. The output decodes the same way.
+     */
+    default InputStream encodeParallel(InputStream raw, int blockSize) throws IOException {
+        return encode(raw);
+    }
+
+    /** Returns a stream yielding the original bytes of {@code encoded}. */
+    InputStream decode(InputStream encoded) throws IOException;
+
+    /** HTTP content-coding the encoded bytes already are, or null if clients cannot decode them. */
+    String getHttpContentEncoding();
+}
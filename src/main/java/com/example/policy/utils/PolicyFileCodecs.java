@@ -0,0 +1,51 @@
+package com.example.policy.utils;
+
+import java.util.zip.Deflater;
+
+/**
+ * Codec registry. Resolves the codecs named in policy.compression.codecs, which pick the
+ * encoding of an upload by content type, and the codec recorded on a stored file.
+ */
+public class PolicyFileCodecs {
+
+	private static final PolicyFileCodec STORE = new StoreCodec();
+	private static final PolicyFileCodec DEFLATE = new DeflateCodec(Deflater.DEFAULT_COMPRESSION);
+	private static final PolicyFileCodec DEFLATE_FAST = new DeflateCodec(Deflater.BEST_SPEED);
+	private static final PolicyFileCodec LZ = new LzCodec();
+
+	/**
+	 * Codec by its name in configuration: {@code store}, {@code deflate}, {@code deflate-fast}
+	 * (deflate at level 1, recorded as deflate) or {@code lz}.
+	 */
+	public static PolicyFileCodec forName(String name) {
+		switch (name == null ? "" : name.toLowerCase()) {
+			case StoreCodec.ID:
+				return STORE;
+			case DeflateCodec.ID:
+				return DEFLATE;
+			case "deflate-fast":
+				return DEFLATE_FAST;
+			case LzCodec.ID:
+				return LZ;
+			default:
+				throw new IllegalArgumentException("Unknown policy file codec: " + name);
+		}
+	}
+
+	/**
+	 * Codec recorded on a stored file. Rows without one predate the codec layer and were
+	 * always written with deflate.
+	 */
+	public static PolicyFileCodec forId(String codecId) {
+		if (codecId == null || DeflateCodec.ID.equals(codecId)) {
+			return DEFLATE;
+		}
+		if (StoreCodec.ID.equals(codecId)) {
+			return STORE;
+		}
+		if (LzCodec.ID.equals(codecId)) {
+			return LZ;
+		}
+		throw new IllegalArgumentException("Unknown policy file codec: " + codecId);
+	}
+}
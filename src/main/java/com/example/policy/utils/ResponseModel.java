@@ -3,10 +3,13 @@ package com.example.policy.utils;
 import java.util.*;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 public class ResponseModel {
@@ -192,6 +195,44 @@ public class ResponseModel {
 		data.put("message", "Something went wrong");
 		return new ResponseEntity<>(data, HttpStatus.BAD_REQUEST);
 	}
+	/**
+	 * {@code Accepted Response} for work that continues in the background.
+	 * @param location - where the progress of the work can be polled
+	 * @return <b>status</b>: 202- Accepted, <b>data</b>
+	 */
+	public static ResponseEntity<Object> accepted(String message, String location, Object payload) {
+		Map<String, Object> data = new HashMap<>();
+		data.put("status", "success");
+		data.put("message", message);
+		data.put("data", payload);
+		return ResponseEntity.status(HttpStatus.ACCEPTED).header(HttpHeaders.LOCATION, location).body(data);
+	}
+
+	/**
+	 * Response for a request refused because the server is at capacity
+	 * @return <b>status</b>: 503- Service Unavailable
+	 */
+	public static ResponseEntity<Object> serviceUnavailable(String message) {
+		Map<String, Object> data = new HashMap<>();
+		data.put("status", "fail");
+		data.put("message", message);
+		return new ResponseEntity<>(data, HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	/**
+	 * Response for a request refused to protect the server, to be retried later
+	 * @param retryAfterSeconds - sent as Retry-After
+	 * @return <b>status</b>: 429- Too Many Requests
+	 */
+	public static ResponseEntity<Object> tooManyRequests(String message, long retryAfterSeconds) {
+		Map<String, Object> data = new HashMap<>();
+		data.put("status", "fail");
+		data.put("message", message);
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+				.body(data);
+	}
+
 	/**
 	 * Response error
 	 *
@@ -277,6 +318,110 @@ public class ResponseModel {
 		return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.valueOf(fileType)).body(report);
 	}
 
+	/**
+	 * mediaFile - Stream file content without buffering it; Range requests are
+	 * answered with 206 Partial Content
+	 * @param fileType
+	 * @param resource
+	 * @return Original file
+	 */
+	public static ResponseEntity<Object> mediaFile(String fileType, Resource resource) {
+		return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.valueOf(fileType))
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).body(resource);
+	}
+
+	/**
+	 * encodedMediaFile - Stream stored file content as-is, letting the client decode it
+	 * @param fileType
+	 * @param contentEncoding - HTTP content-coding of the stored bytes, e.g. deflate
+	 * @param resource
+	 * @return file in its stored encoding
+	 */
+	public static ResponseEntity<Object> encodedMediaFile(String fileType, String contentEncoding, Resource resource) {
+		return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.valueOf(fileType))
+				.header(HttpHeaders.CONTENT_ENCODING, contentEncoding)
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).body(resource);
+	}
+
+	/**
+	 * Streams a generated file as a download
+	 * @param fileType - content type of the file
+	 * @param fileName - name offered to the client
+	 * @param body - writes the file to the response
+	 */
+	public static ResponseEntity<StreamingResponseBody> attachment(String fileType, String fileName, StreamingResponseBody body) {
+		return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.valueOf(fileType))
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+				.body(body);
+	}
+
+	/**
+	 * Strong ETag for file content. Each content-coding is a different representation,
+	 * so an encoded response gets its own tag.
+	 * @param contentHash - SHA-256 of the stored content
+	 * @param contentEncoding - content-coding the bytes are sent in, null for identity
+	 * @return quoted ETag value
+	 */
+	public static String contentEtag(String contentHash, String contentEncoding) {
+		return "\"" + contentHash + (contentEncoding != null ? "-" + contentEncoding : "") + "\"";
+	}
+
+	/**
+	 * Weak ETag for a JSON view of an entity, derived from its revision counter
+	 * @param kind - entity kind, e.g. policy or file
+	 * @param id - entity id
+	 * @param revision - revision counter of the entity
+	 * @return weak ETag value
+	 */
+	public static String revisionEtag(String kind, long id, long revision) {
+		return "W/\"" + kind + "-" + id + "-r" + revision + "\"";
+	}
+
+	/**
+	 * Last-Modified value for WebRequest.checkNotModified; -1 when unknown
+	 */
+	public static long lastModified(Date date) {
+		return date != null ? date.getTime() : -1;
+	}
+
+	/**
+	 * Checks whether an Accept-Encoding header allows {@code coding}, honouring q=0 and "*"
+	 * @param acceptEncoding - raw Accept-Encoding header, may be null
+	 * @param coding - content-coding such as deflate or gzip
+	 * @return true when the client accepts the coding
+	 */
+	public static boolean acceptsEncoding(String acceptEncoding, String coding) {
+		if (acceptEncoding == null || coding == null) {
+			return false;
+		}
+		Double explicit = null;
+		Double wildcard = null;
+		for (String part : acceptEncoding.split(",")) {
+			String[] tokens = part.trim().split(";");
+			String name = tokens[0].trim();
+			double quality = 1.0;
+			for (int i = 1; i < tokens.length; i++) {
+				String param = tokens[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						quality = Double.parseDouble(param.substring(2));
+					} catch (NumberFormatException e) {
+						quality = 0;
+					}
+				}
+			}
+			if (name.equalsIgnoreCase(coding)) {
+				explicit = quality;
+			} else if (name.equals("*")) {
+				wildcard = quality;
+			}
+		}
+		if (explicit != null) {
+			return explicit > 0;
+		}
+		return wildcard != null && wildcard > 0;
+	}
+
 	/**
 	 * Already Existed
 	 * @param message - Data Already existed
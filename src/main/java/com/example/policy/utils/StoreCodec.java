@@ -0,0 +1,32 @@
+package com.example.policy.utils;
+
+import java.io.InputStream;
+
+/**
+ * Stores content unchanged. Used for formats that are already compressed, where
+ * deflate burns CPU for next to no size reduction.
+ */
+public class StoreCodec implements PolicyFileCodec {
+
+    public static final String ID = "store";
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public InputStream encode(InputStream raw) {
+        return raw;
+    }
+
+    @Override
+    public InputStream decode(InputStream encoded) {
+        return encoded;
+    }
+
+    @Override
+    public String getHttpContentEncoding() {
+        return null;
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.policy.utils;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a ZIP archive to a stream one entry at a time. Unlike ZipOutputStream it can take
+ * content that is already zlib-compressed and copy the deflate data into the entry as it
+ * is. The CRC is worked out by inflating alongside the copy, which is far cheaper than
+ * compressing again. The central directory is spilled to a temporary file, so heap use
+ * does not grow with the number of entries. ZIP64 records are added when the archive
+ * needs them.
+ */
+public class ZipStreamWriter implements Closeable {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int ZIP64_END = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int END = 0x06054b50;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+
+    private final CountingOutputStream out;
+    private final Path centralFile;
+    private final DataOutputStream central;
+    private long entries;
+    private boolean finished;
+
+    public ZipStreamWriter(OutputStream out) throws IOException {
+        this.out = new CountingOutputStream(new BufferedOutputStream(out, FileUtils.BUFFER_SIZE));
+        this.centralFile = Files.createTempFile("zip-central", ".bin");
+        this.central = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.centralFile), FileUtils.BUFFER_SIZE));
+    }
+
+    /**
+     * Adds an entry from a zlib stream (as written by the deflate codec), reusing its
+     * compressed data
+     * @throws ZipException if the stream is not valid zlib data
+     */
+    public void putZlibEntry(String name, Date modified, InputStream zlib) throws IOException {
+        int cmf = zlib.read();
+        int flg = zlib.read();
+        if (cmf < 0 || flg < 0 || (cmf & 0x0F) != Deflater.DEFLATED || ((cmf << 8) | flg) % 31 != 0 || (flg & 0x20) != 0) {
+            throw new ZipException("Not a zlib stream: " + name);
+        }
+
+        long offset = this.out.count;
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int flags = FLAG_DATA_DESCRIPTOR | FLAG_UTF8;
+        int dosTime = dosTime(modified);
+        writeLocalHeader(flags, DEFLATED, dosTime, 0, 0, 0, nameBytes);
+
+        CRC32 crc = new CRC32();
+        Adler32 adler = new Adler32();
+        Inflater inflater = ZlibPool.borrowInflater(true);
+        long compressedSize = 0;
+        long size = 0;
+        byte[] trailer = new byte[4];
+        try {
+            // The last four bytes are the zlib trailer, so output always lags the input by four
+            byte[] buffer = new byte[FileUtils.BUFFER_SIZE + 4];
+            byte[] inflated = new byte[FileUtils.BUFFER_SIZE * 4];
+            int pending = 0;
+            int read;
+            while ((read = zlib.read(buffer, pending, buffer.length - pending)) != -1) {
+                int available = pending + read;
+                int ready = available - 4;
+                if (ready > 0) {
+                    this.out.write(buffer, 0, ready);
+                    compressedSize += ready;
+                    inflater.setInput(buffer, 0, ready);
+                    while (!inflater.needsInput() && !inflater.finished()) {
+                        int count = inflater.inflate(inflated);
+                        crc.update(inflated, 0, count);
+                        adler.update(inflated, 0, count);
+                        size += count;
+                    }
+                    System.arraycopy(buffer, ready, buffer, 0, 4);
+                    pending = 4;
+                } else {
+                    pending = available;
+                }
+            }
+            if (pending != 4 || !inflater.finished()) {
+                throw new ZipException("Compressed data is truncated: " + name);
+            }
+            System.arraycopy(buffer, 0, trailer, 0, 4);
+        } catch (DataFormatException e) {
+            throw new ZipException("Compressed data is corrupt: " + name);
+        } finally {
+            ZlibPool.release(inflater, true);
+        }
+        long expected = ((trailer[0] & 0xFFL) << 24) | ((trailer[1] & 0xFF) << 16) | ((trailer[2] & 0xFF) << 8) | (trailer[3] & 0xFF);
+        if (expected != adler.getValue()) {
+            throw new ZipException("Compressed data is corrupt: " + name);
+        }
+
+        writeDataDescriptor(crc.getValue(), compressedSize, size, name);
+        writeCentralHeader(flags, DEFLATED, dosTime, crc.getValue(), compressedSize, size, offset, nameBytes);
+    }
+
+    /**
+     * Adds an entry stored without compression. The content is read twice: once for the
+     * CRC and size that go in the local header, once to copy it.
+     */
+    public void putStoredEntry(String name, Date modified, InputStreamSource content) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream in = content.getInputStream()) {
+            byte[] buffer = new byte[FileUtils.BUFFER_SIZE * 4];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                size += read;
+            }
+        }
+        checkSize(size, name);
+
+        long offset = this.out.count;
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int dosTime = dosTime(modified);
+        writeLocalHeader(FLAG_UTF8, STORED, dosTime, crc.getValue(), size, size, nameBytes);
+        long copied;
+        try (InputStream in = content.getInputStream()) {
+            copied = in.transferTo(this.out);
+        }
+        if (copied != size) {
+            throw new ZipException("Content changed while it was being written: " + name);
+        }
+        writeCentralHeader(FLAG_UTF8, STORED, dosTime, crc.getValue(), size, size, offset, nameBytes);
+    }
+
+    /**
+     * Adds an entry compressed here, for content with no deflate data to reuse
+     */
+    public void putEntry(String name, Date modified, InputStream content) throws IOException {
+        long offset = this.out.count;
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int flags = FLAG_DATA_DESCRIPTOR | FLAG_UTF8;
+        int dosTime = dosTime(modified);
+        writeLocalHeader(flags, DEFLATED, dosTime, 0, 0, 0, nameBytes);
+
+        CRC32 crc = new CRC32();
+        long size = 0;
+        long start = this.out.count;
+        Deflater deflater = ZlibPool.borrowDeflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            DeflaterOutputStream deflating = new DeflaterOutputStream(new FilterOutputStream(this.out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    this.out.write(b, off, len);
+                }
+
+                @Override
+                public void close() {
+                    // Leave the archive stream open
+                }
+            }, deflater, FileUtils.BUFFER_SIZE);
+            byte[] buffer = new byte[FileUtils.BUFFER_SIZE * 4];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                size += read;
+                deflating.write(buffer, 0, read);
+            }
+            deflating.finish();
+        } finally {
+            ZlibPool.release(deflater, Deflater.DEFAULT_COMPRESSION, true);
+        }
+        long compressedSize = this.out.count - start;
+
+        writeDataDescriptor(crc.getValue(), compressedSize, size, name);
+        writeCentralHeader(flags, DEFLATED, dosTime, crc.getValue(), compressedSize, size, offset, nameBytes);
+    }
+
+    /**
+     * Writes the central directory and end records. The underlying stream is flushed, not closed.
+     */
+    public void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+        this.finished = true;
+        this.central.close();
+        long centralOffset = this.out.count;
+        Files.copy(this.centralFile, this.out);
+        long centralSize = this.out.count - centralOffset;
+
+        if (this.entries > 0xFFFF || centralOffset >= MAX_32 || centralSize >= MAX_32) {
+            long zip64EndOffset = this.out.count;
+            writeInt(ZIP64_END);
+            writeLong(44);
+            writeShort(45);
+            writeShort(45);
+            writeInt(0);
+            writeInt(0);
+            writeLong(this.entries);
+            writeLong(this.entries);
+            writeLong(centralSize);
+            writeLong(centralOffset);
+
+            writeInt(ZIP64_LOCATOR);
+            writeInt(0);
+            writeLong(zip64EndOffset);
+            writeInt(1);
+        }
+
+        writeInt(END);
+        writeShort(0);
+        writeShort(0);
+        writeShort((int) Math.min(this.entries, 0xFFFF));
+        writeShort((int) Math.min(this.entries, 0xFFFF));
+        writeInt(Math.min(centralSize, MAX_32));
+        writeInt(Math.min(centralOffset, MAX_32));
+        writeShort(0);
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            this.central.close();
+            Files.deleteIfExists(this.centralFile);
+        }
+    }
+
+    private void writeLocalHeader(int flags, int method, int dosTime, long crc, long compressedSize, long size,
+                                  byte[] name) throws IOException {
+        writeInt(LOCAL_HEADER);
+        writeShort(20);
+        writeShort(flags);
+        writeShort(method);
+        writeInt(dosTime);
+        writeInt(crc);
+        writeInt(compressedSize);
+        writeInt(size);
+        writeShort(name.length);
+        writeShort(0);
+        this.out.write(name);
+    }
+
+    private void writeDataDescriptor(long crc, long compressedSize, long size, String name) throws IOException {
+        checkSize(Math.max(compressedSize, size), name);
+        writeInt(DATA_DESCRIPTOR);
+        writeInt(crc);
+        writeInt(compressedSize);
+        writeInt(size);
+    }
+
+    private void writeCentralHeader(int flags, int method, int dosTime, long crc, long compressedSize, long size,
+                                    long offset, byte[] name) throws IOException {
+        boolean zip64 = offset >= MAX_32;
+        DataOutputStream c = this.central;
+        c.writeInt(Integer.reverseBytes(CENTRAL_HEADER));
+        c.writeShort(Short.reverseBytes((short) 45));
+        c.writeShort(Short.reverseBytes((short) (zip64 ? 45 : 20)));
+        c.writeShort(Short.reverseBytes((short) flags));
+        c.writeShort(Short.reverseBytes((short) method));
+        c.writeInt(Integer.reverseBytes(dosTime));
+        c.writeInt(Integer.reverseBytes((int) crc));
+        c.writeInt(Integer.reverseBytes((int) compressedSize));
+        c.writeInt(Integer.reverseBytes((int) size));
+        c.writeShort(Short.reverseBytes((short) name.length));
+        c.writeShort(Short.reverseBytes((short) (zip64 ? 12 : 0)));
+        c.writeShort(0);
+        c.writeShort(0);
+        c.writeShort(0);
+        c.writeInt(0);
+        c.writeInt(Integer.reverseBytes((int) (zip64 ? MAX_32 : offset)));
+        c.write(name);
+        if (zip64) {
+            c.writeShort(Short.reverseBytes((short) 0x0001));
+            c.writeShort(Short.reverseBytes((short) 8));
+            c.writeLong(Long.reverseBytes(offset));
+        }
+        this.entries++;
+    }
+
+    private static void checkSize(long size, String name) throws ZipException {
+        // Entries this large would need ZIP64 sizes in the local header; policy files never get there
+        if (size >= MAX_32) {
+            throw new ZipException("Entry too large for the archive: " + name);
+        }
+    }
+
+    private static int dosTime(Date modified) {
+        LocalDateTime time = LocalDateTime.ofInstant((modified != null ? modified : new Date()).toInstant(),
+                ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+                | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    private void writeShort(int value) throws IOException {
+        this.out.write(value & 0xFF);
+        this.out.write((value >>> 8) & 0xFF);
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt(value & MAX_32);
+        writeInt(value >>> 32);
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.policy.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded pools of Deflater and Inflater instances. Each instance holds native zlib memory
+ * that is otherwise only released when the GC gets to it, so callers borrow an instance,
+ * use it, and give it back; instances that do not fit back into the pool are ended at once.
+ * Direct buffers for the output side are pooled the same way.
+ */
+public class ZlibPool {
+
+	private static final int MAX_POOLED = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+	public static final int DIRECT_BUFFER_SIZE = 64 * 1024;
+
+	private static final ConcurrentMap<Integer, BlockingQueue<Deflater>> DEFLATERS = new ConcurrentHashMap<>();
+	private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(MAX_POOLED);
+	private static final BlockingQueue<Inflater> RAW_INFLATERS = new ArrayBlockingQueue<>(MAX_POOLED);
+	private static final BlockingQueue<ByteBuffer> BUFFERS = new ArrayBlockingQueue<>(MAX_POOLED);
+
+	private static final AtomicLong CREATED = new AtomicLong();
+	private static final AtomicLong ENDED = new AtomicLong();
+
+	public static Deflater borrowDeflater(int level, boolean nowrap) {
+		Deflater deflater = deflaters(level, nowrap).poll();
+		if (deflater == null) {
+			CREATED.incrementAndGet();
+			deflater = new Deflater(level, nowrap);
+		}
+		return deflater;
+	}
+
+	public static void release(Deflater deflater, int level, boolean nowrap) {
+		deflater.reset();
+		if (!deflaters(level, nowrap).offer(deflater)) {
+			ENDED.incrementAndGet();
+			deflater.end();
+		}
+	}
+
+	public static Inflater borrowInflater(boolean nowrap) {
+		Inflater inflater = (nowrap ? RAW_INFLATERS : INFLATERS).poll();
+		if (inflater == null) {
+			CREATED.incrementAndGet();
+			inflater = new Inflater(nowrap);
+		}
+		return inflater;
+	}
+
+	public static void release(Inflater inflater, boolean nowrap) {
+		inflater.reset();
+		if (!(nowrap ? RAW_INFLATERS : INFLATERS).offer(inflater)) {
+			ENDED.incrementAndGet();
+			inflater.end();
+		}
+	}
+
+	/** Borrows a cleared direct buffer of {@link #DIRECT_BUFFER_SIZE} bytes. */
+	public static ByteBuffer borrowBuffer() {
+		ByteBuffer buffer = BUFFERS.poll();
+		return buffer == null ? ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE) : buffer.clear();
+	}
+
+	// A buffer that does not fit back is left to its cleaner
+	public static void release(ByteBuffer buffer) {
+		BUFFERS.offer(buffer);
+	}
+
+	/** Number of native zlib instances currently alive, pooled or in use. */
+	public static long liveInstances() {
+		return CREATED.get() - ENDED.get();
+	}
+
+	private static BlockingQueue<Deflater> deflaters(int level, boolean nowrap) {
+		return DEFLATERS.computeIfAbsent(level * 2 + (nowrap ? 1 : 0), key -> new ArrayBlockingQueue<>(MAX_POOLED));
+	}
+}
@@ -0,0 +1,149 @@
+package com.example.policy.controller;
+
+import com.example.policy.model.Policy;
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.model.PolicyRole;
+import com.example.policy.model.User;
+import com.example.policy.service.PolicyService;
+import com.example.policy.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional GETs of a policy must not answer 304 once anything in its file list changed,
+ * including votes that leave the round open, whether the client revalidates by ETag or by date.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class PolicyEtagTest {
+
+    private static final AtomicInteger NAMES = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PolicyService policyService;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void votesOnAnOpenRoundChangeTheEtag() throws Exception {
+        Policy policy = newPolicy();
+        List<Long> reviewers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            long userId = newUser();
+            this.policyService.addPolicyMember(policy.getPolicyId(), userId, PolicyRole.REVIEWER, null);
+            reviewers.add(userId);
+        }
+        byte[] content = "Policy text".getBytes();
+        PolicyFiles file = this.policyService.addPolicyFile(policy.getPolicyId(), "policy.txt", "text/plain",
+                content.length, new ByteArrayResource(content), "1", "CREATED", new Date(), null, null);
+        String url = "/policy/response/" + policy.getPolicyId();
+
+        String etag = etag(url, null, 200);
+        etag(url, etag, 304);
+
+        // One approval of three leaves the review open
+        vote(policy, file, reviewers.get(0), true, null);
+        etag = etag(url, etag, 200);
+
+        // One each way still leaves it open
+        vote(policy, file, reviewers.get(1), false, "Missing the retention clause");
+        etag = etag(url, etag, 200);
+        assertEquals("CREATED", this.policyService.getPolicyFilesById(file.getPolicyFilesId()).getStatus());
+        etag(url, etag, 304);
+
+        // A member added later is fanned out to the file
+        this.policyService.addPolicyMember(policy.getPolicyId(), newUser(), PolicyRole.APPROVER, null);
+        etag(url, etag, 200);
+    }
+
+    @Test
+    void votesChangeLastModified() throws Exception {
+        Policy policy = newPolicy();
+        long reviewer = newUser();
+        this.policyService.addPolicyMember(policy.getPolicyId(), reviewer, PolicyRole.REVIEWER, null);
+        this.policyService.addPolicyMember(policy.getPolicyId(), newUser(), PolicyRole.REVIEWER, null);
+        byte[] content = "Policy text".getBytes();
+        PolicyFiles file = this.policyService.addPolicyFile(policy.getPolicyId(), "policy.txt", "text/plain",
+                content.length, new ByteArrayResource(content), "1", "CREATED", new Date(), null, null);
+        String policyUrl = "/policy/response/" + policy.getPolicyId();
+        String fileUrl = "/policy/" + file.getPolicyFilesId();
+
+        String policyModified = lastModified(policyUrl, null, 200);
+        String fileModified = lastModified(fileUrl, null, 200);
+        lastModified(policyUrl, policyModified, 304);
+        lastModified(fileUrl, fileModified, 304);
+
+        // Last-Modified has whole seconds
+        Thread.sleep(1100);
+        vote(policy, file, reviewer, true, null);
+        lastModified(policyUrl, policyModified, 200);
+        lastModified(fileUrl, fileModified, 200);
+    }
+
+    private String lastModified(String url, String ifModifiedSince, int expectedStatus) throws Exception {
+        var request = get(url);
+        if (ifModifiedSince != null) {
+            request.header(HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSince);
+        }
+        MvcResult result = this.mockMvc.perform(request).andExpect(status().is(expectedStatus)).andReturn();
+        String lastModified = result.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        assertNotNull(lastModified);
+        return lastModified;
+    }
+
+    private String etag(String url, String ifNoneMatch, int expectedStatus) throws Exception {
+        var request = get(url);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MvcResult result = this.mockMvc.perform(request).andExpect(status().is(expectedStatus)).andReturn();
+        String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+
+    private void vote(Policy policy, PolicyFiles file, long userId, boolean accepted, String reason) throws Exception {
+        String body = "{\"policyId\":" + policy.getPolicyId() + ",\"policyFileId\":" + file.getPolicyFilesId()
+                + ",\"userId\":" + userId + ",\"accepted\":" + accepted
+                + (reason != null ? ",\"rejectedReason\":\"" + reason + "\"" : "") + "}";
+        this.mockMvc.perform(put("/policy/reviewer-decision").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+    }
+
+    private Policy newPolicy() {
+        Policy policy = new Policy();
+        policy.setPolicyName("Etag " + NAMES.incrementAndGet());
+        policy = this.policyService.createPolicy(policy);
+        this.policyService.addPolicyMember(policy.getPolicyId(), newUser(), PolicyRole.CREATOR, null);
+        return policy;
+    }
+
+    private long newUser() {
+        int n = NAMES.incrementAndGet();
+        User user = new User();
+        user.setUserName("etag" + n);
+        user.setEmail("etag" + n + "@example.com");
+        return this.userService.createUser(user).getUserId();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.policy.controller;
+
+import com.example.policy.model.Policy;
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.model.PolicyRole;
+import com.example.policy.model.User;
+import com.example.policy.service.PolicyService;
+import com.example.policy.service.UserService;
+import com.example.policy.utils.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Range requests on downloads: stored content of known length is cut to the range, while
+ * rows not yet moved to the file store have no length and are sent whole.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class PolicyFileDownloadTest {
+
+    private static final AtomicInteger NAMES = new AtomicInteger();
+    private static final byte[] CONTENT = "Policy text, long enough to ask for a part of it".getBytes();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PolicyService policyService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rangeOfStoredContentIsPartial() throws Exception {
+        PolicyFiles file = newPolicyFile();
+        this.mockMvc.perform(get("/policy/download/" + file.getPolicyFilesId()).header(HttpHeaders.RANGE, "bytes=0-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(Arrays.copyOf(CONTENT, 6)));
+    }
+
+    @Test
+    void rangeOfAnUnmigratedRowSendsTheWholeFile() throws Exception {
+        PolicyFiles file = newPolicyFile();
+        // As written before the file store: deflated content in the row, no hash and no sizes
+        this.jdbcTemplate.update("update policy_files set file = ?, content_hash = null, content_size = null, "
+                + "file_size = null, codec = null where policy_files_id = ?",
+                FileUtils.compressFile(CONTENT), file.getPolicyFilesId());
+
+        this.mockMvc.perform(get("/policy/download/" + file.getPolicyFilesId()).header(HttpHeaders.RANGE, "bytes=0-5"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT));
+        this.mockMvc.perform(get("/policy/download/" + file.getPolicyFilesId()))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(CONTENT));
+    }
+
+    private PolicyFiles newPolicyFile() {
+        Policy policy = new Policy();
+        policy.setPolicyName("Download " + NAMES.incrementAndGet());
+        policy = this.policyService.createPolicy(policy);
+        int n = NAMES.incrementAndGet();
+        User user = new User();
+        user.setUserName("download" + n);
+        user.setEmail("download" + n + "@example.com");
+        this.policyService.addPolicyMember(policy.getPolicyId(), this.userService.createUser(user).getUserId(),
+                PolicyRole.CREATOR, null);
+        return this.policyService.addPolicyFile(policy.getPolicyId(), "policy.txt", "text/plain", CONTENT.length,
+                new ByteArrayResource(CONTENT), "1", "CREATED", new Date(), null, null);
+    }
+}
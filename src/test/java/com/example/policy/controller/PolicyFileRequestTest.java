@@ -0,0 +1,103 @@
+package com.example.policy.controller;
+
+import com.example.policy.model.Policy;
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.model.PolicyRole;
+import com.example.policy.model.User;
+import com.example.policy.service.PolicyService;
+import com.example.policy.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Requests to the multipart policy file endpoints: validation of the parts, and updates
+ * that send no file at all.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class PolicyFileRequestTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PolicyService policyService;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void addingAPartWithNoContentTypeIsAValidationError() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "policy.pdf", null, "%PDF-1.7".getBytes());
+        this.mockMvc.perform(multipart("/policy/files").file(file)
+                        .param("policyId", "1")
+                        .param("version", "1")
+                        .param("status", "CREATED")
+                        .param("createdDate", "01 Jan 2025")
+                        .param("effectiveStartDate", "01 Jan 2025")
+                        .param("effectiveEndDate", "01 Jan 2026"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("fail"))
+                .andExpect(jsonPath("$.fieldName").value("fileFormat"));
+    }
+
+    @Test
+    void updatingWithAPartWithNoContentTypeIsAValidationError() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "policy.pdf", null, "%PDF-1.7".getBytes());
+        this.mockMvc.perform(multipart(HttpMethod.PUT, "/policy/files").file(file)
+                        .param("policyId", "1")
+                        .param("policyFileId", "1")
+                        .param("version", "2")
+                        .param("status", "CREATED")
+                        .param("effectiveEndDate", "01 Jan 2026"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("fail"))
+                .andExpect(jsonPath("$.fieldName").value("fileFormat"));
+    }
+
+    @Test
+    void updateWithoutAFileChangesOnlyTheDetails() throws Exception {
+        Policy policy = new Policy();
+        policy.setPolicyName("Metadata update");
+        policy = this.policyService.createPolicy(policy);
+        User user = new User();
+        user.setUserName("metadata");
+        user.setEmail("metadata@example.com");
+        this.policyService.addPolicyMember(policy.getPolicyId(), this.userService.createUser(user).getUserId(),
+                PolicyRole.CREATOR, null);
+        byte[] content = "%PDF-1.7 original".getBytes();
+        PolicyFiles file = this.policyService.addPolicyFile(policy.getPolicyId(), "policy.pdf", "application/pdf",
+                content.length, new ByteArrayResource(content), "1", "CREATED", new Date(), null, null);
+
+        this.mockMvc.perform(multipart(HttpMethod.PUT, "/policy/files")
+                        .param("policyId", String.valueOf(policy.getPolicyId()))
+                        .param("policyFileId", String.valueOf(file.getPolicyFilesId()))
+                        .param("version", "2")
+                        .param("status", "CREATED")
+                        .param("effectiveEndDate", "01 Jan 2030"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"));
+
+        PolicyFiles updated = this.policyService.getPolicyFilesById(file.getPolicyFilesId());
+        assertEquals("2", updated.getPolicyVersion());
+        assertNotNull(updated.getEffectiveEndDate());
+        assertEquals("policy.pdf", updated.getFileName());
+        assertEquals(file.getContentHash(), updated.getContentHash());
+        assertArrayEquals(content, this.policyService.getPolicyFileContent(file.getPolicyFilesId()));
+        // No content changed, so no revision beyond the first
+        assertEquals(1, this.policyService.getPolicyFileRevisions(file.getPolicyFilesId()).size());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.policy.repository;
+
+import com.example.policy.model.IdGenerators;
+import jakarta.persistence.*;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Saves the same rows once with ids drawn from the pooled table generators and once with
+ * IDENTITY ids, under the JDBC batch settings of application.yml. Hibernate has to run an
+ * IDENTITY insert on its own to learn the id, so only the table-generated rows can go out
+ * in batches. Counts the insert statements Hibernate prepares for each, one per IDENTITY
+ * row against one reused across the batches, and logs the time taken; the timing on
+ * an in-memory database understates the gain against a remote MySQL server, where each
+ * statement is a network round trip.
+ */
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("h2")
+class InsertBatchingBenchmarkTest {
+
+    private static final int ROWS = 5000;
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void tableIdsBatchInsertsThatIdentityIdsCannot() {
+        Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Run identity = null;
+        Run table = null;
+        // The first round warms up both paths; the last one is reported
+        for (int round = 0; round < ROUNDS; round++) {
+            identity = insert(statistics, IdentityRow::new);
+            table = insert(statistics, TableRow::new);
+        }
+
+        log.info("{} rows with IDENTITY ids: {} statements, {} ms", ROWS, identity.statements, identity.millis());
+        log.info("{} rows with table ids: {} statements, {} ms", ROWS, table.statements, table.millis());
+
+        assertTrue(identity.statements >= ROWS, "every IDENTITY insert runs on its own");
+        // Ids come from the generator in blocks, so the inserts are queued and sent as batches
+        int batches = (ROWS + IdGenerators.ALLOCATION_SIZE - 1) / IdGenerators.ALLOCATION_SIZE;
+        assertTrue(table.statements <= batches, "table ids should batch, took " + table.statements);
+    }
+
+    private Run insert(Statistics statistics, IntFunction<Object> row) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+        statistics.clear();
+        long begin = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < ROWS; i++) {
+                this.entityManager.persist(row.apply(i));
+            }
+            this.entityManager.flush();
+            this.entityManager.clear();
+        });
+        return new Run(statistics.getPrepareStatementCount(), System.nanoTime() - begin);
+    }
+
+    private record Run(long statements, long nanos) {
+        long millis() {
+            return this.nanos / 1_000_000;
+        }
+    }
+
+    @Entity
+    @Table(name = "benchmark_identity_rows")
+    static class IdentityRow {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private long id;
+        private String name;
+        private int weight;
+
+        IdentityRow() {
+        }
+
+        IdentityRow(int i) {
+            this.name = "row " + i;
+            this.weight = i;
+        }
+    }
+
+    @Entity
+    @Table(name = "benchmark_table_rows")
+    static class TableRow {
+        @Id
+        @GeneratedValue(strategy = GenerationType.TABLE, generator = "benchmark_table_rows_id")
+        @TableGenerator(name = "benchmark_table_rows_id", table = IdGenerators.TABLE, pkColumnName = IdGenerators.SEGMENT_COLUMN,
+                valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "benchmark_table_rows",
+                allocationSize = IdGenerators.ALLOCATION_SIZE)
+        private long id;
+        private String name;
+        private int weight;
+
+        TableRow() {
+        }
+
+        TableRow(int i) {
+            this.name = "row " + i;
+            this.weight = i;
+        }
+    }
+}
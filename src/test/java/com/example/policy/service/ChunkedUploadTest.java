@@ -0,0 +1,182 @@
+package com.example.policy.service;
+
+import com.example.policy.config.UploadProperties;
+import com.example.policy.model.Policy;
+import com.example.policy.model.PolicyFiles;
+import com.example.policy.model.PolicyRole;
+import com.example.policy.model.PolicyUploadSession;
+import com.example.policy.model.User;
+import com.example.policy.repository.PolicyUploadSessionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Commits and expiry of chunked uploads against an in-memory database. The commit claim and
+ * the committed file live on the session row, so a second node is simulated by writing them
+ * directly.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ChunkedUploadTest {
+
+    private static final AtomicInteger NAMES = new AtomicInteger();
+
+    @Autowired
+    private PolicyUploadServiceImpl policyUploadService;
+    @Autowired
+    private PolicyService policyService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private PolicyUploadSessionRepository policyUploadSessionRepository;
+    @Autowired
+    private UploadProperties uploadProperties;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void retriedCommitReturnsTheSameFile() {
+        PolicyUploadSession upload = newUpload(pdf("first version"));
+        PolicyFiles committed = this.policyUploadService.commitUpload(upload.getUploadId());
+        // The chunks go at once, the session with the file id stays for retries
+        assertFalse(Files.exists(directory(upload.getUploadId())));
+        assertEquals(committed.getPolicyFilesId(),
+                this.policyUploadSessionRepository.findById(upload.getUploadId()).orElseThrow().getPolicyFilesId());
+
+        PolicyFiles again = this.policyUploadService.commitUpload(upload.getUploadId());
+        assertEquals(committed.getPolicyFilesId(), again.getPolicyFilesId());
+        assertThrows(RuntimeException.class, () -> this.policyUploadService.abortUpload(upload.getUploadId()));
+
+        // Until the session expires
+        Date old = new Date(System.currentTimeMillis() - this.uploadProperties.getSessionTtl().toMillis() - 1000);
+        setDate("last_modified_date", upload.getUploadId(), old);
+        this.policyUploadService.expireUploads();
+        assertFalse(this.policyUploadSessionRepository.existsById(upload.getUploadId()));
+    }
+
+    @Test
+    void commitClaimedWhileAChunkStreamsIsKept() {
+        byte[] content = pdf("racing");
+        PolicyUploadSession upload = newUpload(content);
+        Date claimed = new Date();
+        // Another node claims the commit after this chunk was admitted but before it is stored
+        InputStream chunk = new FilterInputStream(new ByteArrayInputStream(content)) {
+            private boolean claimedYet;
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (!this.claimedYet) {
+                    this.claimedYet = true;
+                    setDate("commit_started_date", upload.getUploadId(), claimed);
+                }
+                return super.read(b, off, len);
+            }
+        };
+
+        assertThrows(RuntimeException.class,
+                () -> this.policyUploadService.putChunk(upload.getUploadId(), 0, chunk, sha256(content)));
+        assertNotNull(this.policyUploadSessionRepository.findById(upload.getUploadId()).orElseThrow()
+                .getCommitStartedDate());
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> this.policyUploadService.commitUpload(upload.getUploadId()));
+        assertTrue(e.getMessage().startsWith("Upload is already being committed"), e.getMessage());
+    }
+
+    @Test
+    void commitClaimedElsewhereIsRefusedUntilStale() {
+        byte[] content = pdf("claimed");
+        PolicyUploadSession upload = newUpload(content);
+        setDate("commit_started_date", upload.getUploadId(), new Date());
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> this.policyUploadService.commitUpload(upload.getUploadId()));
+        assertTrue(e.getMessage().startsWith("Upload is already being committed"), e.getMessage());
+        assertThrows(RuntimeException.class, () -> this.policyUploadService.putChunk(upload.getUploadId(), 0,
+                new ByteArrayInputStream(content), sha256(content)));
+        assertThrows(RuntimeException.class, () -> this.policyUploadService.abortUpload(upload.getUploadId()));
+
+        // The other node died mid-commit
+        Date stale = new Date(System.currentTimeMillis() - this.uploadProperties.getCommitTimeout().toMillis() - 1000);
+        setDate("commit_started_date", upload.getUploadId(), stale);
+        assertNotNull(this.policyUploadService.commitUpload(upload.getUploadId()));
+    }
+
+    @Test
+    void abandonedUploadsExpire() throws Exception {
+        PolicyUploadSession idle = newUpload(pdf("idle"));
+        PolicyUploadSession active = newUpload(pdf("active"));
+        Date old = new Date(System.currentTimeMillis() - this.uploadProperties.getSessionTtl().toMillis() - 1000);
+        setDate("last_modified_date", idle.getUploadId(), old);
+
+        Path orphan = directory(UUID.randomUUID().toString());
+        Files.createDirectories(orphan);
+        Files.write(orphan.resolve("chunk-0"), "left behind".getBytes());
+        Files.setLastModifiedTime(orphan, FileTime.fromMillis(old.getTime()));
+
+        this.policyUploadService.expireUploads();
+
+        assertFalse(this.policyUploadSessionRepository.existsById(idle.getUploadId()));
+        assertFalse(Files.exists(directory(idle.getUploadId())));
+        assertFalse(Files.exists(orphan));
+        assertTrue(this.policyUploadSessionRepository.existsById(active.getUploadId()));
+        assertTrue(Files.exists(directory(active.getUploadId())));
+    }
+
+    private PolicyUploadSession newUpload(byte[] content) {
+        Policy policy = new Policy();
+        policy.setPolicyName("Upload " + NAMES.incrementAndGet());
+        policy = this.policyService.createPolicy(policy);
+        int n = NAMES.incrementAndGet();
+        User user = new User();
+        user.setUserName("uploader" + n);
+        user.setEmail("uploader" + n + "@example.com");
+        this.policyService.addPolicyMember(policy.getPolicyId(), this.userService.createUser(user).getUserId(),
+                PolicyRole.CREATOR, null);
+        PolicyUploadSession upload = this.policyUploadService.createUpload(policy.getPolicyId(), "policy.pdf",
+                "application/pdf", content.length, "1", "CREATED", new Date(), null, null);
+        return this.policyUploadService.putChunk(upload.getUploadId(), 0, new ByteArrayInputStream(content),
+                sha256(content));
+    }
+
+    // Uploads are checked against their declared type, so the content needs a PDF header
+    private static byte[] pdf(String text) {
+        return ("%PDF-1.7\n" + text).getBytes();
+    }
+
+    private void setDate(String column, String uploadId, Date date) {
+        this.jdbcTemplate.update("update policy_upload_session set " + column + " = ? where upload_id = ?",
+                date, uploadId);
+    }
+
+    private Path directory(String uploadId) {
+        return Paths.get(this.uploadProperties.getRoot()).toAbsolutePath().resolve(uploadId);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
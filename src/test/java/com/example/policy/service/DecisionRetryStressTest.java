@@ -0,0 +1,304 @@
+package com.example.policy.service;
+
+import com.example.policy.config.DecisionProperties;
+import com.example.policy.model.*;
+import com.example.policy.repository.PolicyApproverAndReviewerRepository;
+import com.example.policy.repository.PolicyFilesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many reviewers and approvers deciding on the same files at once, through the real
+ * services and an in-memory database. Checks that every decision is either recorded or
+ * refused because its round already closed, that the tallies on the files match the
+ * decision rows, that each round settles, and that no decision needed a retry: voters
+ * queue on the file lock instead of deadlocking.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("h2")
+class DecisionRetryStressTest {
+
+    private static final int THREADS = 16;
+    private static final AtomicInteger NAMES = new AtomicInteger();
+
+    @Autowired
+    private PolicyService policyService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private DecisionRetry decisionRetry;
+    @Autowired
+    private PolicyFilesRepository policyFilesRepository;
+    @Autowired
+    private PolicyApproverAndReviewerRepository policyApproverAndReviewerRepository;
+
+    @Test
+    void singleHotFileKeepsEveryVote() throws Exception {
+        int voters = 120;
+        Policy policy = newPolicy();
+        List<Long> reviewers = addMembers(policy, PolicyRole.REVIEWER, voters);
+        PolicyFiles file = addFile(policy);
+
+        Result result = new Result();
+        List<Callable<Void>> votes = new ArrayList<>();
+        for (int i = 0; i < voters; i++) {
+            long userId = reviewers.get(i);
+            boolean approve = i % 3 != 0;
+            votes.add(() -> {
+                result.record(() -> this.policyService.updatePolicyReviewer(policy.getPolicyId(), userId, approve,
+                        approve ? null : "Needs changes", file.getPolicyFilesId()));
+                return null;
+            });
+        }
+        run(votes, result);
+
+        assertEquals(0, result.failed.get());
+        assertEquals(voters, result.recorded.get() + result.closed.get());
+        assertEquals(voters, result.attempts.get(), "no decision should need a retry");
+        assertTalliesMatchRows(file.getPolicyFilesId());
+        // Two in three approve, so the review closes accepted once a majority is in; with no
+        // approvers assigned the approval round stays open
+        PolicyFiles settled = this.policyFilesRepository.findById(file.getPolicyFilesId()).orElseThrow();
+        assertTrue(settled.isFinalAcceptance());
+        assertEquals("UNDER_APPROVAL", settled.getStatus());
+        result.log("1 file x " + voters + " reviewers");
+    }
+
+    @Test
+    void batchesAndSingleDecisionsAcrossManyFiles() throws Exception {
+        int files = 20;
+        int reviewers = 15;
+        int approvers = 5;
+        Policy policy = newPolicy();
+        List<Long> reviewerIds = addMembers(policy, PolicyRole.REVIEWER, reviewers);
+        List<Long> approverIds = addMembers(policy, PolicyRole.APPROVER, approvers);
+        List<Long> fileIds = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            fileIds.add(addFile(policy).getPolicyFilesId());
+        }
+
+        // Reviewers decide on every file in one batch each, listing the files in their own order;
+        // approvers decide one file at a time, racing the reviews
+        Result result = new Result();
+        List<Callable<Void>> votes = new ArrayList<>();
+        for (int i = 0; i < reviewers; i++) {
+            long userId = reviewerIds.get(i);
+            boolean approve = i % 4 != 0;
+            List<PolicyDecisionItem> decisions = new ArrayList<>();
+            for (Long fileId : fileIds) {
+                decisions.add(new PolicyDecisionItem(policy.getPolicyId(), fileId, approve, approve ? null : "Needs changes"));
+            }
+            Collections.shuffle(decisions, new Random(i));
+            votes.add(() -> {
+                result.recordBatch(() -> this.policyService.updateDecisions(userId, PolicyRole.REVIEWER, decisions));
+                return null;
+            });
+        }
+        for (Long userId : approverIds) {
+            for (Long fileId : fileIds) {
+                votes.add(() -> {
+                    result.record(() -> this.policyService.updatePolicyApprover(policy.getPolicyId(), fileId, userId,
+                            true, null));
+                    return null;
+                });
+            }
+        }
+        run(votes, result);
+
+        assertEquals(0, result.failed.get());
+        assertEquals(files * (reviewers + approvers), result.recorded.get() + result.closed.get());
+        assertEquals(reviewers + files * approvers, result.attempts.get(), "no decision should need a retry");
+        for (Long fileId : fileIds) {
+            assertTalliesMatchRows(fileId);
+            // Reviewers accept by majority and every approver approves, whichever finished first
+            assertEquals("APPROVED", this.policyFilesRepository.findById(fileId).orElseThrow().getStatus());
+        }
+        result.log(files + " files x " + (reviewers + approvers) + " members");
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+        DecisionRetry retry = retry(3);
+        assertThrows(RuntimeException.class, () -> retry.execute(() -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException(PolicyFiles.class, 1L);
+        }));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void doesNotRetryOtherErrors() {
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () -> retry(3).execute(() -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("Reviewer has already made a decision for this policy file.");
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    private static DecisionRetry retry(int maxAttempts) {
+        DecisionProperties properties = new DecisionProperties();
+        properties.setMaxAttempts(maxAttempts);
+        properties.setInitialBackoff(Duration.ofMillis(1));
+        properties.setMaxBackoff(Duration.ofMillis(50));
+        return new DecisionRetry(properties);
+    }
+
+    // The tallies kept by the bulk updates must equal the weights of the decided rows
+    private void assertTalliesMatchRows(long policyFilesId) {
+        PolicyFiles file = this.policyFilesRepository.findById(policyFilesId).orElseThrow();
+        int[] reviewers = new int[4];
+        int[] approvers = new int[4];
+        for (PolicyApproverAndReviewer row : this.policyApproverAndReviewerRepository.findByPolicyAndRoleAndPolicyFiles(
+                file.getPolicy(), PolicyRole.REVIEWER, file)) {
+            count(reviewers, row);
+        }
+        for (PolicyApproverAndReviewer row : this.policyApproverAndReviewerRepository.findByPolicyAndRoleAndPolicyFiles(
+                file.getPolicy(), PolicyRole.APPROVER, file)) {
+            count(approvers, row);
+        }
+        assertEquals(reviewers[0], file.getReviewersApproved());
+        assertEquals(reviewers[1], file.getReviewersRejected());
+        assertEquals(approvers[0], file.getApproversApproved());
+        assertEquals(approvers[1], file.getApproversRejected());
+        // Every row was either decided or closed without a decision, never both
+        assertEquals(file.getReviewersAssigned(), reviewers[0] + reviewers[1] + reviewers[2]);
+        assertEquals(file.getApproversAssigned(), approvers[0] + approvers[1] + approvers[2]);
+        assertEquals(0, reviewers[3] + approvers[3]);
+    }
+
+    // approved, rejected, moot, decided and moot
+    private static void count(int[] counts, PolicyApproverAndReviewer row) {
+        if (row.isDecided() && row.isMoot()) {
+            counts[3]++;
+        } else if (row.isDecided()) {
+            counts[row.isApproved() ? 0 : 1]++;
+        } else if (row.isMoot()) {
+            counts[2]++;
+        }
+    }
+
+    private Policy newPolicy() {
+        Policy policy = new Policy();
+        policy.setPolicyName("Stress " + NAMES.incrementAndGet());
+        policy = this.policyService.createPolicy(policy);
+        this.policyService.addPolicyMember(policy.getPolicyId(), newUser(), PolicyRole.CREATOR, null);
+        return policy;
+    }
+
+    private List<Long> addMembers(Policy policy, PolicyRole role, int count) {
+        List<Long> userIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long userId = newUser();
+            this.policyService.addPolicyMember(policy.getPolicyId(), userId, role, null);
+            userIds.add(userId);
+        }
+        return userIds;
+    }
+
+    private long newUser() {
+        int n = NAMES.incrementAndGet();
+        User user = new User();
+        user.setUserName("user" + n);
+        user.setEmail("user" + n + "@example.com");
+        return this.userService.createUser(user).getUserId();
+    }
+
+    private PolicyFiles addFile(Policy policy) {
+        byte[] content = ("Policy text " + NAMES.incrementAndGet()).getBytes();
+        return this.policyService.addPolicyFile(policy.getPolicyId(), "policy.txt", "text/plain", content.length,
+                new ByteArrayResource(content), "1", "CREATED", new Date(), null, null);
+    }
+
+    private final class Result {
+        final AtomicInteger recorded = new AtomicInteger();
+        final AtomicInteger closed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger attempts = new AtomicInteger();
+        long nanos;
+
+        void record(Supplier<?> decision) {
+            try {
+                attempt(decision);
+                this.recorded.incrementAndGet();
+            } catch (RuntimeException e) {
+                refused(e.getMessage());
+            }
+        }
+
+        void recordBatch(Supplier<List<PolicyDecisionResult>> batch) {
+            List<PolicyDecisionResult> results;
+            try {
+                results = attempt(batch);
+            } catch (RuntimeException e) {
+                log.error("Batch failed", e);
+                this.failed.incrementAndGet();
+                return;
+            }
+            for (PolicyDecisionResult result : results) {
+                if (result.getStatus() == PolicyDecisionResult.Status.APPLIED) {
+                    this.recorded.incrementAndGet();
+                } else {
+                    refused(result.getError());
+                }
+            }
+        }
+
+        private <T> T attempt(Supplier<T> decision) {
+            return DecisionRetryStressTest.this.decisionRetry.execute(() -> {
+                this.attempts.incrementAndGet();
+                return decision.get();
+            });
+        }
+
+        private void refused(String error) {
+            if (error != null && error.contains("already closed")) {
+                this.closed.incrementAndGet();
+            } else {
+                log.error("Decision failed: {}", error);
+                this.failed.incrementAndGet();
+            }
+        }
+
+        void log(String label) {
+            log.info("{}: {} decisions recorded, {} refused after close, {} attempts, {} decisions/s", label,
+                    this.recorded.get(), this.closed.get(), this.attempts.get(),
+                    Math.round(this.recorded.get() / (this.nanos / 1e9)));
+        }
+    }
+
+    // All decisions released at the same moment
+    private void run(List<Callable<Void>> votes, Result result) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Callable<Void> vote : votes) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return vote.call();
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        result.nanos = System.nanoTime() - begin;
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.policy.service;
+
+import com.example.policy.model.IngestJob;
+import com.example.policy.model.Policy;
+import com.example.policy.model.PolicyRole;
+import com.example.policy.model.User;
+import com.example.policy.repository.IngestJobRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ingest jobs are read back from the database once the node running them is done with them,
+ * which is also what another node polling for them sees.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class IngestJobTest {
+
+    private static final AtomicInteger NAMES = new AtomicInteger();
+
+    @Autowired
+    private PolicyIngestServiceImpl policyIngestService;
+    @Autowired
+    private PolicyService policyService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private IngestJobRepository ingestJobRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void finishedJobsStayVisibleUntilTheyArePurged() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "policy.pdf", "application/pdf",
+                "%PDF-1.7 ingested".getBytes());
+        IngestJob submitted = this.policyIngestService.submitPolicyFile(newPolicy().getPolicyId(), file, "1", "CREATED",
+                new Date(), null, null);
+        assertTrue(this.ingestJobRepository.existsById(submitted.getJobId()));
+
+        IngestJob job = awaitCompletion(submitted.getJobId());
+        assertEquals(IngestJob.Status.DONE, job.getStatus(), job.getError());
+        IngestJob stored = this.ingestJobRepository.findById(submitted.getJobId()).orElseThrow();
+        assertEquals(IngestJob.Status.DONE, stored.getStatus());
+        assertNotNull(stored.getPolicyFilesId());
+        assertNotNull(stored.getCompletedDate());
+        assertEquals(file.getSize(), stored.getBytesProcessed());
+
+        // Within the retention period a purge leaves it alone
+        this.policyIngestService.purgeFinishedJobs();
+        assertEquals(IngestJob.Status.DONE, this.policyIngestService.getJob(submitted.getJobId()).getStatus());
+
+        this.jdbcTemplate.update("update ingest_job set completed_date = ? where job_id = ?",
+                new Date(System.currentTimeMillis() - 2 * 60 * 60 * 1000), submitted.getJobId());
+        this.policyIngestService.purgeFinishedJobs();
+        assertThrows(RuntimeException.class, () -> this.policyIngestService.getJob(submitted.getJobId()));
+    }
+
+    @Test
+    void interruptedJobsAreFailed() {
+        IngestJob queued = new IngestJob();
+        queued.setJobId(UUID.randomUUID().toString());
+        queued.setFileName("policy.pdf");
+        queued.setSubmittedDate(new Date());
+        this.ingestJobRepository.save(queued);
+
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status ->
+                this.ingestJobRepository.markInterrupted(List.of(queued.getJobId()), "Interrupted", new Date()));
+
+        IngestJob job = this.policyIngestService.getJob(queued.getJobId());
+        assertEquals(IngestJob.Status.FAILED, job.getStatus());
+        assertEquals("Interrupted", job.getError());
+        assertNotNull(job.getCompletedDate());
+    }
+
+    private IngestJob awaitCompletion(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            IngestJob job = this.policyIngestService.getJob(jobId);
+            if (job.getCompletedDate() != null) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        fail("Ingest job " + jobId + " did not finish");
+        return null;
+    }
+
+    private Policy newPolicy() {
+        Policy policy = new Policy();
+        policy.setPolicyName("Ingest " + NAMES.incrementAndGet());
+        policy = this.policyService.createPolicy(policy);
+        int n = NAMES.incrementAndGet();
+        User user = new User();
+        user.setUserName("ingest" + n);
+        user.setEmail("ingest" + n + "@example.com");
+        this.policyService.addPolicyMember(policy.getPolicyId(), this.userService.createUser(user).getUserId(),
+                PolicyRole.CREATOR, null);
+        return policy;
+    }
+}
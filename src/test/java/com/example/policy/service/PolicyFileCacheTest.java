@@ -0,0 +1,105 @@
+package com.example.policy.service;
+
+import com.example.policy.config.FileCacheProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolicyFileCacheTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        PolicyFileCache cache = new PolicyFileCache(new FileCacheProperties());
+        byte[] content = "policy text".getBytes();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger opened = new AtomicInteger();
+        InputStreamSource source = () -> {
+            opened.incrementAndGet();
+            await(release);
+            return new ByteArrayInputStream(content);
+        };
+
+        List<Future<ByteBuffer>> loads = startLoads(cache, source, content.length);
+        // Give every caller time to join the first load before it is allowed to finish
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<ByteBuffer> load : loads) {
+            assertArrayEquals(content, bytes(load.get(10, TimeUnit.SECONDS)));
+        }
+        assertEquals(1, opened.get());
+        assertArrayEquals(content, bytes(cache.get(1, "v1")));
+    }
+
+    @Test
+    void failedLoadIsReportedToEveryCallerAndNotCached() throws Exception {
+        PolicyFileCache cache = new PolicyFileCache(new FileCacheProperties());
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger opened = new AtomicInteger();
+        InputStreamSource source = () -> {
+            opened.incrementAndGet();
+            await(release);
+            throw new IOException("store unavailable");
+        };
+
+        List<Future<ByteBuffer>> loads = startLoads(cache, source, 10);
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<ByteBuffer> load : loads) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> load.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+        }
+        assertEquals(1, opened.get());
+        assertNull(cache.get(1, "v1"));
+
+        // The next caller tries again
+        byte[] content = "recovered".getBytes();
+        ByteBuffer loaded = cache.load(1, "v1", content.length, () -> new ByteArrayInputStream(content));
+        assertArrayEquals(content, bytes(loaded));
+    }
+
+    @Test
+    void versionsLoadSeparately() throws IOException {
+        PolicyFileCache cache = new PolicyFileCache(new FileCacheProperties());
+        cache.load(1, "v1", 2, () -> new ByteArrayInputStream("v1".getBytes()));
+        cache.load(1, "v2", 2, () -> new ByteArrayInputStream("v2".getBytes()));
+        assertNull(cache.get(1, "v1"));
+        assertArrayEquals("v2".getBytes(), bytes(cache.get(1, "v2")));
+    }
+
+    private static List<Future<ByteBuffer>> startLoads(PolicyFileCache cache, InputStreamSource source, int length) {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<ByteBuffer>> loads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            loads.add(executor.submit(() -> cache.load(1, "v1", length, source)));
+        }
+        executor.shutdown();
+        return loads;
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IOException("Timed out");
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.policy.service;
+
+import com.example.policy.config.ArchiveProperties;
+import com.example.policy.model.PolicyFilePackEntry;
+import com.example.policy.repository.PolicyFilePackEntryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two instances over one store root stand in for two nodes sharing it: each starts from the
+ * segment it found at startup, and both append at once.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class PolicyFilePacksTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @Autowired
+    private PolicyFilePackEntryRepository policyFilePackEntryRepository;
+
+    @TempDir
+    Path root;
+
+    @Test
+    void nodesSharingARootAppendWithoutOverwriting() throws Exception {
+        ArchiveProperties properties = new ArchiveProperties();
+        properties.setSegmentSize(DataSize.ofBytes(SEGMENT_SIZE));
+        List<PolicyFilePacks> nodes = List.of(
+                new PolicyFilePacks(this.policyFilePackEntryRepository, properties, this.root.toString()),
+                new PolicyFilePacks(this.policyFilePackEntryRepository, properties, this.root.toString()));
+
+        Map<String, byte[]> contents = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<PolicyFilePackEntry>> appends = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            byte[] content = new byte[1000 + (i * 397) % 9000];
+            new Random(i).nextBytes(content);
+            String contentHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+            contents.put(contentHash, content);
+            PolicyFilePacks node = nodes.get(i % 2);
+            appends.add(executor.submit(() -> node.append(contentHash, content.length,
+                    new ByteArrayInputStream(content), null)));
+        }
+        executor.shutdown();
+        for (Future<PolicyFilePackEntry> append : appends) {
+            append.get(30, TimeUnit.SECONDS);
+        }
+
+        for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+            try (InputStream in = nodes.get(0).open(content.getKey()).orElseThrow()) {
+                assertArrayEquals(content.getValue(), in.readAllBytes(), content.getKey());
+            }
+        }
+        try (Stream<Path> segments = Files.list(this.root.resolve("packs"))) {
+            List<Path> paths = segments.toList();
+            assertTrue(paths.size() > 1);
+            for (Path segment : paths) {
+                assertTrue(Files.size(segment) <= SEGMENT_SIZE, segment + " has " + Files.size(segment) + " bytes");
+            }
+        }
+    }
+}
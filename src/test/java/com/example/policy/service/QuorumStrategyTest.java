@@ -0,0 +1,97 @@
+package com.example.policy.service;
+
+import com.example.policy.config.QuorumProperties;
+import com.example.policy.service.QuorumStrategy.Kind;
+import com.example.policy.service.QuorumStrategy.Outcome;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuorumStrategyTest {
+
+    @Test
+    void majority() {
+        QuorumStrategy strategy = QuorumStrategy.majority();
+        assertEquals(1, strategy.required(1));
+        assertEquals(2, strategy.required(2));
+        assertEquals(2, strategy.required(3));
+        assertEquals(3, strategy.required(4));
+
+        assertEquals(Outcome.PENDING, strategy.evaluate(1, 1, 4));
+        assertEquals(Outcome.ACCEPTED, strategy.evaluate(3, 0, 4));
+        // Three of four rejected: one approval left cannot reach three
+        assertEquals(Outcome.REJECTED, strategy.evaluate(0, 2, 4));
+        // A tie is not a majority
+        assertEquals(Outcome.REJECTED, strategy.evaluate(2, 2, 4));
+    }
+
+    @Test
+    void supermajority() {
+        QuorumStrategy strategy = QuorumStrategy.supermajority(2.0 / 3);
+        assertEquals(2, strategy.required(3));
+        assertEquals(4, strategy.required(6));
+        assertEquals(5, strategy.required(7));
+        assertEquals(1, strategy.required(1));
+
+        assertEquals(Outcome.ACCEPTED, strategy.evaluate(4, 0, 6));
+        assertEquals(Outcome.PENDING, strategy.evaluate(3, 2, 6));
+        assertEquals(Outcome.REJECTED, strategy.evaluate(3, 3, 6));
+    }
+
+    @Test
+    void unanimous() {
+        QuorumStrategy strategy = QuorumStrategy.unanimous();
+        assertEquals(Outcome.PENDING, strategy.evaluate(2, 0, 3));
+        assertEquals(Outcome.ACCEPTED, strategy.evaluate(3, 0, 3));
+        // The first rejection decides
+        assertEquals(Outcome.REJECTED, strategy.evaluate(0, 1, 3));
+    }
+
+    @Test
+    void nOfM() {
+        QuorumStrategy strategy = QuorumStrategy.nOfM(2);
+        assertEquals(Outcome.ACCEPTED, strategy.evaluate(2, 3, 5));
+        assertEquals(Outcome.PENDING, strategy.evaluate(1, 2, 5));
+        assertEquals(Outcome.REJECTED, strategy.evaluate(1, 4, 5));
+        // A round smaller than the requirement needs everyone
+        assertEquals(Outcome.ACCEPTED, QuorumStrategy.nOfM(3).evaluate(1, 0, 1));
+    }
+
+    @Test
+    void weightsCountAsSeveralVotes() {
+        // One member weighing 3 outvotes two weighing 1
+        QuorumStrategy strategy = QuorumStrategy.majority();
+        assertEquals(Outcome.ACCEPTED, strategy.evaluate(3, 0, 5));
+        assertEquals(Outcome.REJECTED, strategy.evaluate(0, 3, 5));
+    }
+
+    @Test
+    void emptyRoundStaysOpen() {
+        for (Kind kind : Kind.values()) {
+            QuorumStrategy strategy = QuorumStrategy.of(kind, 2.0 / 3, 1);
+            assertEquals(Outcome.PENDING, strategy.evaluate(0, 0, 0), kind.name());
+        }
+    }
+
+    @Test
+    void rejectsSettingsThatMakeNoRule() {
+        assertThrows(IllegalArgumentException.class, () -> QuorumStrategy.of(Kind.N_OF_M, 0.5, 0));
+        assertThrows(IllegalArgumentException.class, () -> QuorumStrategy.of(Kind.N_OF_M, 0.5, -1));
+        assertThrows(IllegalArgumentException.class, () -> QuorumStrategy.of(Kind.SUPERMAJORITY, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> QuorumStrategy.of(Kind.SUPERMAJORITY, 1.5, 1));
+        assertThrows(IllegalArgumentException.class, () -> QuorumStrategy.of(Kind.SUPERMAJORITY, Double.NaN, 1));
+        assertThrows(IllegalArgumentException.class, () -> QuorumStrategy.of(null, 0.5, 1));
+        // Settings a rule does not use are not checked
+        assertNotNull(QuorumStrategy.of(Kind.MAJORITY, 0, 0));
+        assertNotNull(QuorumStrategy.of(Kind.SUPERMAJORITY, 1, 0));
+    }
+
+    @Test
+    void propertiesFailOnStart() {
+        QuorumProperties properties = new QuorumProperties();
+        properties.afterPropertiesSet();
+        properties.getApprovers().setStrategy(Kind.N_OF_M);
+        properties.getApprovers().setRequired(0);
+        assertThrows(IllegalArgumentException.class, properties::afterPropertiesSet);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.policy.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryDeltaTest {
+
+    // Length and end marker of a delta with no ops
+    private static final int HEADER = 9;
+
+    @Test
+    void identicalInputIsOneCopy() {
+        byte[] base = LzCodecTest.text(10_000);
+        byte[] delta = assertRoundTrip(base, base.clone());
+        assertEquals(HEADER + 9, delta.length);
+    }
+
+    @Test
+    void emptyBase() {
+        byte[] target = LzCodecTest.text(1000);
+        byte[] delta = assertRoundTrip(new byte[0], target);
+        assertEquals(HEADER + 5 + target.length, delta.length);
+    }
+
+    @Test
+    void emptyTarget() {
+        byte[] delta = assertRoundTrip(LzCodecTest.text(1000), new byte[0]);
+        assertEquals(HEADER, delta.length);
+    }
+
+    @Test
+    void bothEmpty() {
+        assertRoundTrip(new byte[0], new byte[0]);
+    }
+
+    @Test
+    void inputsSmallerThanABlock() {
+        assertRoundTrip("short".getBytes(), "shorter".getBytes());
+        assertRoundTrip("fifteen bytes!!".getBytes(), "fifteen bytes!!".getBytes());
+        assertRoundTrip("sixteen bytes!!!".getBytes(), "x".getBytes());
+        assertRoundTrip("x".getBytes(), "sixteen bytes!!!".getBytes());
+    }
+
+    @Test
+    void inserts() {
+        byte[] base = LzCodecTest.text(20_000);
+        byte[] target = concat(Arrays.copyOfRange(base, 0, 7_000), "A new clause on retention.".getBytes(),
+                Arrays.copyOfRange(base, 7_000, base.length), "Signed.".getBytes());
+        byte[] delta = assertRoundTrip(base, target);
+        assertTrue(delta.length < 100, "delta of " + delta.length + " bytes");
+    }
+
+    @Test
+    void deletes() {
+        byte[] base = LzCodecTest.text(20_000);
+        byte[] target = concat(Arrays.copyOfRange(base, 0, 5_000), Arrays.copyOfRange(base, 9_003, 15_000),
+                Arrays.copyOfRange(base, 15_500, base.length));
+        byte[] delta = assertRoundTrip(base, target);
+        assertTrue(delta.length < 100, "delta of " + delta.length + " bytes");
+    }
+
+    @Test
+    void movedBlocks() {
+        byte[] base = LzCodecTest.text(30_000);
+        byte[] target = concat(Arrays.copyOfRange(base, 20_000, 30_000), Arrays.copyOfRange(base, 0, 10_000),
+                Arrays.copyOfRange(base, 10_000, 20_000));
+        byte[] delta = assertRoundTrip(base, target);
+        assertTrue(delta.length < 100, "delta of " + delta.length + " bytes");
+    }
+
+    @Test
+    void unrelatedContentIsOneInsert() {
+        byte[] target = LzCodecTest.random(5_000, 3);
+        byte[] delta = assertRoundTrip(LzCodecTest.random(5_000, 4), target);
+        assertEquals(HEADER + 5 + target.length, delta.length);
+    }
+
+    @Test
+    void repetitiveInput() {
+        byte[] base = new byte[50_000];
+        byte[] target = new byte[60_000];
+        target[30_000] = 1;
+        assertRoundTrip(base, target);
+    }
+
+    @Test
+    void scatteredEdits() {
+        Random random = new Random(7);
+        byte[] base = LzCodecTest.text(100_000);
+        for (int run = 0; run < 20; run++) {
+            byte[] target = base.clone();
+            for (int edit = 0; edit < 1 + random.nextInt(30); edit++) {
+                target[random.nextInt(target.length)] = (byte) random.nextInt();
+            }
+            int cut = random.nextInt(target.length);
+            target = concat(Arrays.copyOfRange(target, 0, cut), LzCodecTest.random(random.nextInt(100), run),
+                    Arrays.copyOfRange(target, cut + random.nextInt(target.length - cut), target.length));
+            assertRoundTrip(base, target);
+        }
+    }
+
+    @Test
+    void wrongBaseIsRejected() {
+        byte[] delta = BinaryDelta.encode(LzCodecTest.text(1000), LzCodecTest.text(1200));
+        assertThrows(RuntimeException.class, () -> BinaryDelta.apply(LzCodecTest.text(999), delta));
+    }
+
+    @Test
+    void truncatedDeltaIsRejected() {
+        byte[] base = LzCodecTest.text(1000);
+        byte[] delta = BinaryDelta.encode(base, concat(base, "more".getBytes()));
+        for (int length = 0; length < delta.length; length++) {
+            byte[] truncated = Arrays.copyOf(delta, length);
+            assertThrows(RuntimeException.class, () -> BinaryDelta.apply(base, truncated));
+        }
+    }
+
+    private static byte[] assertRoundTrip(byte[] base, byte[] target) {
+        byte[] delta = BinaryDelta.encode(base, target);
+        assertArrayEquals(target, BinaryDelta.apply(base, delta));
+        return delta;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
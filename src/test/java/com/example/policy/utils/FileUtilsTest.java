@@ -0,0 +1,43 @@
+package com.example.policy.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileUtilsTest {
+
+    @Test
+    void roundTripAcrossBufferSizes() {
+        int buffer = ZlibPool.DIRECT_BUFFER_SIZE;
+        for (int length : new int[]{0, 1, buffer - 1, buffer, buffer + 1, 10 * buffer + 7}) {
+            byte[] text = LzCodecTest.text(length);
+            assertArrayEquals(text, FileUtils.decompressFile(FileUtils.compressFile(text)), length + " bytes of text");
+            byte[] random = LzCodecTest.random(length, length);
+            assertArrayEquals(random, FileUtils.decompressFile(FileUtils.compressFile(random)), length + " random bytes");
+        }
+    }
+
+    @Test
+    void highlyCompressedContentGrowsTheResult() {
+        // Far more than twice the compressed size
+        byte[] zeros = new byte[5 * 1024 * 1024];
+        assertArrayEquals(zeros, FileUtils.decompressFile(FileUtils.compressFile(zeros)));
+    }
+
+    @Test
+    void truncatedAndCorruptDataAreErrors() {
+        byte[] compressed = FileUtils.compressFile(LzCodecTest.text(100_000));
+        RuntimeException truncated = assertThrows(RuntimeException.class,
+                () -> FileUtils.decompressFile(Arrays.copyOf(compressed, compressed.length / 2)));
+        assertTrue(truncated.getMessage().contains("truncated"), truncated.getMessage());
+
+        byte[] corrupt = compressed.clone();
+        for (int i = 10; i < 40; i++) {
+            corrupt[i] ^= 0x5A;
+        }
+        RuntimeException e = assertThrows(RuntimeException.class, () -> FileUtils.decompressFile(corrupt));
+        assertTrue(e.getMessage().contains("corrupt"), e.getMessage());
+    }
+}
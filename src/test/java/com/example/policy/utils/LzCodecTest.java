@@ -0,0 +1,155 @@
+package com.example.policy.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LzCodecTest {
+
+    private final LzCodec codec = new LzCodec();
+
+    @Test
+    void emptyInput() throws IOException {
+        byte[] encoded = encode(new byte[0]);
+        assertEquals(0, encoded.length);
+        assertArrayEquals(new byte[0], decode(encoded));
+    }
+
+    @Test
+    void inputsShorterThanAMatch() throws IOException {
+        for (int length = 1; length <= 16; length++) {
+            byte[] data = new byte[length];
+            Arrays.fill(data, (byte) 'a');
+            assertRoundTrip(data);
+        }
+    }
+
+    @Test
+    void incompressibleBlocksAreStoredRaw() throws IOException {
+        byte[] data = random(3 * LzCodec.BLOCK_SIZE + 17, 1);
+        byte[] encoded = encode(data);
+        // Each block costs its 9-byte header and nothing more
+        assertEquals(data.length + 4 * 9, encoded.length);
+        assertEquals(0, encoded[0]);
+        assertArrayEquals(data, decode(encoded));
+    }
+
+    @Test
+    void longMatches() throws IOException {
+        // Runs long enough that match lengths need several 255 extension bytes
+        byte[] data = new byte[LzCodec.BLOCK_SIZE];
+        byte[] word = "policy approval ".getBytes();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = word[i % word.length];
+        }
+        byte[] encoded = assertRoundTrip(data);
+        assertTrue(encoded.length < data.length / 50, "encoded to " + encoded.length);
+    }
+
+    @Test
+    void overlappingCopies() throws IOException {
+        // Offset 1 and 2 matches copy bytes they have just produced
+        byte[] zeros = new byte[1000];
+        assertRoundTrip(zeros);
+        byte[] pairs = new byte[1001];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = (byte) (i % 2 == 0 ? 'a' : 'b');
+        }
+        assertRoundTrip(pairs);
+    }
+
+    @Test
+    void longLiteralRuns() throws IOException {
+        // Literal lengths of 15 and 15 + 255 sit on the edges of the length encoding
+        for (int literals : new int[]{14, 15, 16, 269, 270, 271, 1000}) {
+            byte[] data = new byte[literals + 64];
+            System.arraycopy(random(literals, literals), 0, data, 0, literals);
+            assertRoundTrip(data);
+        }
+    }
+
+    @Test
+    void blockBoundaries() throws IOException {
+        for (int length : new int[]{LzCodec.BLOCK_SIZE - 1, LzCodec.BLOCK_SIZE, LzCodec.BLOCK_SIZE + 1,
+                2 * LzCodec.BLOCK_SIZE, 3 * LzCodec.BLOCK_SIZE + 5}) {
+            assertRoundTrip(text(length));
+        }
+    }
+
+    @Test
+    void mixedCompressibleAndRandomBlocks() throws IOException {
+        byte[] data = new byte[4 * LzCodec.BLOCK_SIZE];
+        System.arraycopy(text(LzCodec.BLOCK_SIZE), 0, data, 0, LzCodec.BLOCK_SIZE);
+        System.arraycopy(random(LzCodec.BLOCK_SIZE, 2), 0, data, LzCodec.BLOCK_SIZE, LzCodec.BLOCK_SIZE);
+        System.arraycopy(text(2 * LzCodec.BLOCK_SIZE), 0, data, 2 * LzCodec.BLOCK_SIZE, 2 * LzCodec.BLOCK_SIZE);
+        assertRoundTrip(data);
+    }
+
+    @Test
+    void singleByteReads() throws IOException {
+        byte[] data = text(LzCodec.BLOCK_SIZE + 100);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = this.codec.decode(new ByteArrayInputStream(encode(data)))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                out.write(b);
+            }
+        }
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    void truncatedInputFails() throws IOException {
+        byte[] encoded = encode(text(LzCodec.BLOCK_SIZE));
+        assertThrows(IOException.class, () -> decode(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertThrows(IOException.class, () -> decode(Arrays.copyOf(encoded, 5)));
+    }
+
+    @Test
+    void corruptOffsetFails() {
+        // One literal, then a match reaching back further than the output
+        byte[] block = {0x10, 'a', 0x10, 0x00};
+        assertThrows(IOException.class, () -> LzCodec.decompress(block, block.length, new byte[64], 64));
+    }
+
+    private byte[] assertRoundTrip(byte[] data) throws IOException {
+        byte[] encoded = encode(data);
+        assertArrayEquals(data, decode(encoded), "round trip of " + data.length + " bytes");
+        return encoded;
+    }
+
+    private byte[] encode(byte[] data) throws IOException {
+        try (InputStream in = this.codec.encode(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private byte[] decode(byte[] encoded) throws IOException {
+        try (InputStream in = this.codec.decode(new ByteArrayInputStream(encoded))) {
+            return in.readAllBytes();
+        }
+    }
+
+    static byte[] text(int length) {
+        String[] words = {"policy", "approval", "reviewer", "shall", "must", "document", "version", "the", "of"};
+        Random random = new Random(length);
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(words[random.nextInt(words.length)]).append(random.nextInt(10) == 0 ? ".\n" : " ");
+        }
+        return text.substring(0, length).getBytes();
+    }
+
+    static byte[] random(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
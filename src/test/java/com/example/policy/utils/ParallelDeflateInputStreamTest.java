@@ -0,0 +1,120 @@
+package com.example.policy.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The parallel output must be a plain zlib stream, so it is read back with the JDK's
+ * InflaterInputStream rather than anything from this package.
+ */
+class ParallelDeflateInputStreamTest {
+
+    private static final int BLOCK_SIZE = 4096;
+
+    @Test
+    void emptyInput() throws IOException {
+        byte[] compressed = compress(new byte[0], Deflater.DEFAULT_COMPRESSION);
+        assertTrue(compressed.length > 0);
+        assertArrayEquals(new byte[0], inflate(compressed));
+    }
+
+    @Test
+    void blockBoundaries() throws IOException {
+        for (int length : new int[]{1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 2 * BLOCK_SIZE,
+                17 * BLOCK_SIZE, 17 * BLOCK_SIZE + 3}) {
+            byte[] data = LzCodecTest.text(length);
+            assertArrayEquals(data, inflate(compress(data, Deflater.DEFAULT_COMPRESSION)), length + " bytes");
+        }
+    }
+
+    @Test
+    void everyLevel() throws IOException {
+        byte[] data = LzCodecTest.text(5 * BLOCK_SIZE + 100);
+        for (int level = Deflater.DEFAULT_COMPRESSION; level <= Deflater.BEST_COMPRESSION; level++) {
+            assertArrayEquals(data, inflate(compress(data, level)), "level " + level);
+        }
+    }
+
+    @Test
+    void incompressibleInput() throws IOException {
+        byte[] data = LzCodecTest.random(9 * BLOCK_SIZE + 11, 5);
+        assertArrayEquals(data, inflate(compress(data, Deflater.BEST_SPEED)));
+    }
+
+    @Test
+    void compressesTextAboutAsWellAsOneDeflater() throws IOException {
+        byte[] data = LzCodecTest.text(4 * 1024 * 1024);
+        byte[] parallel;
+        try (InputStream in = new ParallelDeflateInputStream(new ByteArrayInputStream(data), Deflater.DEFAULT_COMPRESSION,
+                256 * 1024)) {
+            parallel = in.readAllBytes();
+        }
+        byte[] serial = FileUtils.compressingStream(new ByteArrayInputStream(data), Deflater.DEFAULT_COMPRESSION, false)
+                .readAllBytes();
+        // Each block starts with an empty window, which costs a little ratio at realistic block sizes
+        assertArrayEquals(data, inflate(parallel));
+        assertTrue(parallel.length < serial.length * 1.05, parallel.length + " vs " + serial.length);
+    }
+
+    @Test
+    void singleByteReads() throws IOException {
+        byte[] data = LzCodecTest.text(3 * BLOCK_SIZE + 7);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new ParallelDeflateInputStream(new ByteArrayInputStream(data), Deflater.DEFAULT_COMPRESSION,
+                BLOCK_SIZE)) {
+            int b;
+            while ((b = in.read()) != -1) {
+                out.write(b);
+            }
+        }
+        assertArrayEquals(data, inflate(out.toByteArray()));
+    }
+
+    @Test
+    void closeBeforeTheEnd() throws IOException {
+        byte[] data = LzCodecTest.text(50 * BLOCK_SIZE);
+        InputStream in = new ParallelDeflateInputStream(new ByteArrayInputStream(data), Deflater.DEFAULT_COMPRESSION,
+                BLOCK_SIZE);
+        assertTrue(in.read(new byte[100]) > 0);
+        in.close();
+    }
+
+    @Test
+    void closeStopsBlocksStillCompressing() throws Exception {
+        int blockSize = 4 * 1024 * 1024;
+        byte[] data = LzCodecTest.random(8 * blockSize, 7);
+        InputStream in = new ParallelDeflateInputStream(new ByteArrayInputStream(data), Deflater.BEST_COMPRESSION,
+                blockSize);
+        // The header comes back first; the next read starts the blocks
+        in.read(new byte[2]);
+        assertTrue(in.read(new byte[100]) > 0);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (ParallelDeflateInputStream.compressing() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(ParallelDeflateInputStream.compressing() > 0);
+        in.close();
+        assertEquals(0, ParallelDeflateInputStream.compressing());
+    }
+
+    private static byte[] compress(byte[] data, int level) throws IOException {
+        try (InputStream in = new ParallelDeflateInputStream(new ByteArrayInputStream(data), level, BLOCK_SIZE)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) throws IOException {
+        // InflaterInputStream checks the Adler-32 trailer once it reaches the end of the stream
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
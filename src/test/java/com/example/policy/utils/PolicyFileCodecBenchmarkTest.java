@@ -0,0 +1,102 @@
+package com.example.policy.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares encode/decode throughput and ratio of the policy file codecs on synthetic
+ * text-like and random data, checking that each round-trips and that the ratios order as
+ * expected. Real documents can be added with {@code -Dcodec.samples=a.pdf,b.png}.
+ */
+@Slf4j
+class PolicyFileCodecBenchmarkTest {
+
+    private static final int SAMPLE_SIZE = 4 * 1024 * 1024;
+    private static final int ROUNDS = 3;
+
+    @Test
+    void codecsRoundTripAndOrderByRatio() throws IOException {
+        Map<String, byte[]> samples = new LinkedHashMap<>();
+        samples.put("synthetic-text", LzCodecTest.text(SAMPLE_SIZE));
+        samples.put("random", LzCodecTest.random(SAMPLE_SIZE, 42));
+        String extra = System.getProperty("codec.samples");
+        if (extra != null && !extra.isBlank()) {
+            for (String path : extra.split(",")) {
+                samples.put(Path.of(path.trim()).getFileName().toString(), Files.readAllBytes(Path.of(path.trim())));
+            }
+        }
+
+        Map<String, PolicyFileCodec> codecs = new LinkedHashMap<>();
+        codecs.put("store", new StoreCodec());
+        codecs.put("deflate-1", new DeflateCodec(Deflater.BEST_SPEED));
+        codecs.put("deflate-6", new DeflateCodec(Deflater.DEFAULT_COMPRESSION));
+        codecs.put("deflate-9", new DeflateCodec(Deflater.BEST_COMPRESSION));
+        codecs.put("lz", new LzCodec());
+
+        Map<String, Integer> textSizes = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> sample : samples.entrySet()) {
+            for (Map.Entry<String, PolicyFileCodec> codec : codecs.entrySet()) {
+                Result result = measure(codec.getValue(), sample.getValue());
+                log.info("{} {}: {} bytes, ratio {}, encode {} MB/s, decode {} MB/s", sample.getKey(), codec.getKey(),
+                        result.encodedLength, String.format("%.3f", (double) result.encodedLength / sample.getValue().length),
+                        String.format("%.1f", mbPerSecond(sample.getValue().length, result.encodeNanos)),
+                        String.format("%.1f", mbPerSecond(sample.getValue().length, result.decodeNanos)));
+                if (sample.getKey().equals("synthetic-text")) {
+                    textSizes.put(codec.getKey(), result.encodedLength);
+                }
+            }
+        }
+
+        assertEquals(SAMPLE_SIZE, textSizes.get("store"));
+        assertTrue(textSizes.get("lz") < SAMPLE_SIZE / 2);
+        assertTrue(textSizes.get("deflate-1") < textSizes.get("lz"));
+        assertTrue(textSizes.get("deflate-9") <= textSizes.get("deflate-6"));
+        assertTrue(textSizes.get("deflate-6") <= textSizes.get("deflate-1"));
+    }
+
+    // Best of several rounds, each checked to decode back to the sample
+    private static Result measure(PolicyFileCodec codec, byte[] sample) throws IOException {
+        Result result = new Result();
+        result.encodeNanos = Long.MAX_VALUE;
+        result.decodeNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            byte[] encoded;
+            try (InputStream in = codec.encode(new ByteArrayInputStream(sample))) {
+                encoded = in.readAllBytes();
+            }
+            result.encodeNanos = Math.min(result.encodeNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            byte[] decoded;
+            try (InputStream in = codec.decode(new ByteArrayInputStream(encoded))) {
+                decoded = in.readAllBytes();
+            }
+            result.decodeNanos = Math.min(result.decodeNanos, System.nanoTime() - start);
+            assertArrayEquals(sample, decoded, codec.getId() + " round trip");
+            result.encodedLength = encoded.length;
+        }
+        return result;
+    }
+
+    private static double mbPerSecond(long bytes, long nanos) {
+        return (bytes / (1024.0 * 1024.0)) / (nanos / 1_000_000_000.0);
+    }
+
+    private static class Result {
+        int encodedLength;
+        long encodeNanos;
+        long decodeNanos;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.policy.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Archives written by ZipStreamWriter are read back with the JDK's ZipFile, which goes by the
+ * central directory, and ZipInputStream, which goes by the local headers and data descriptors.
+ */
+class ZipStreamWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyKindOfEntry() throws IOException {
+        Map<String, byte[]> expected = new LinkedHashMap<>();
+        Date modified = new GregorianCalendar(2024, Calendar.MARCH, 14, 15, 9, 26).getTime();
+        Path zip = this.dir.resolve("export.zip");
+        try (OutputStream file = Files.newOutputStream(zip); ZipStreamWriter writer = new ZipStreamWriter(file)) {
+            byte[] text = LzCodecTest.text(200_000);
+            writer.putZlibEntry("deflate.txt", modified, zlib(text));
+            expected.put("deflate.txt", text);
+
+            byte[] large = LzCodecTest.text(3 * 1024 * 1024 + 5);
+            writer.putZlibEntry("parallel.txt", modified,
+                    new ParallelDeflateInputStream(new ByteArrayInputStream(large), Deflater.DEFAULT_COMPRESSION, 1024 * 1024));
+            expected.put("parallel.txt", large);
+
+            byte[] image = LzCodecTest.random(100_000, 9);
+            writer.putStoredEntry("scan.png", modified, new ByteArrayResource(image));
+            expected.put("scan.png", image);
+
+            byte[] plain = LzCodecTest.text(70_000);
+            writer.putEntry("compressed-here.txt", modified, new ByteArrayInputStream(plain));
+            expected.put("compressed-here.txt", plain);
+
+            writer.putZlibEntry("empty-deflate.txt", modified, zlib(new byte[0]));
+            expected.put("empty-deflate.txt", new byte[0]);
+            writer.putStoredEntry("empty-stored.txt", modified, new ByteArrayResource(new byte[0]));
+            expected.put("empty-stored.txt", new byte[0]);
+            writer.putEntry("empty-compressed.txt", modified, new ByteArrayInputStream(new byte[0]));
+            expected.put("empty-compressed.txt", new byte[0]);
+
+            // Names are written as UTF-8 with the language encoding flag set
+            byte[] policy = "Richtlinie".getBytes();
+            writer.putZlibEntry("Richtlinie für Datenschutz/政策 – v2.txt", modified, zlib(policy));
+            expected.put("Richtlinie für Datenschutz/政策 – v2.txt", policy);
+        }
+
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            assertEquals(expected.size(), file.size());
+            List<String> names = new ArrayList<>();
+            file.stream().forEach(entry -> names.add(entry.getName()));
+            assertEquals(new ArrayList<>(expected.keySet()), names);
+            for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                ZipEntry zipEntry = file.getEntry(entry.getKey());
+                assertEquals(entry.getValue().length, zipEntry.getSize(), entry.getKey());
+                assertEquals(crc(entry.getValue()), zipEntry.getCrc(), entry.getKey());
+                assertEquals(modified.getTime(), zipEntry.getTime(), entry.getKey());
+                try (InputStream in = file.getInputStream(zipEntry)) {
+                    assertArrayEquals(entry.getValue(), in.readAllBytes(), entry.getKey());
+                }
+            }
+        }
+
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+            Iterator<Map.Entry<String, byte[]>> expectedEntries = expected.entrySet().iterator();
+            ZipEntry zipEntry;
+            while ((zipEntry = in.getNextEntry()) != null) {
+                Map.Entry<String, byte[]> entry = expectedEntries.next();
+                assertEquals(entry.getKey(), zipEntry.getName());
+                // ZipInputStream checks the CRC and sizes of the data descriptor against the data
+                assertArrayEquals(entry.getValue(), in.readAllBytes(), entry.getKey());
+            }
+            assertFalse(expectedEntries.hasNext());
+        }
+    }
+
+    @Test
+    void moreEntriesThanTheClassicEndRecordHolds() throws IOException {
+        int entries = 0xFFFF + 500;
+        Path zip = this.dir.resolve("many.zip");
+        try (OutputStream file = Files.newOutputStream(zip); ZipStreamWriter writer = new ZipStreamWriter(file)) {
+            for (int i = 0; i < entries; i++) {
+                byte[] content = ("policy " + i).getBytes();
+                if (i % 2 == 0) {
+                    writer.putStoredEntry("files/" + i + ".txt", null, new ByteArrayResource(content));
+                } else {
+                    writer.putZlibEntry("files/" + i + ".txt", null, zlib(content));
+                }
+            }
+        }
+
+        // The count only fits in the ZIP64 end record
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            assertEquals(entries, file.size());
+            for (int i : new int[]{0, 1, 0xFFFF, entries - 1}) {
+                try (InputStream in = file.getInputStream(file.getEntry("files/" + i + ".txt"))) {
+                    assertEquals("policy " + i, new String(in.readAllBytes()));
+                }
+            }
+        }
+        int read = 0;
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+            while (in.getNextEntry() != null) {
+                in.transferTo(OutputStream.nullOutputStream());
+                read++;
+            }
+        }
+        assertEquals(entries, read);
+    }
+
+    @Test
+    void rejectsContentThatIsNotZlib() throws IOException {
+        try (ZipStreamWriter writer = new ZipStreamWriter(OutputStream.nullOutputStream())) {
+            assertThrows(ZipException.class, () -> writer.putZlibEntry("plain.txt", null,
+                    new ByteArrayInputStream("not compressed".getBytes())));
+        }
+    }
+
+    @Test
+    void rejectsTruncatedAndCorruptZlib() throws IOException {
+        byte[] compressed = zlib(LzCodecTest.text(50_000)).readAllBytes();
+        try (ZipStreamWriter writer = new ZipStreamWriter(OutputStream.nullOutputStream())) {
+            assertThrows(ZipException.class, () -> writer.putZlibEntry("truncated.txt", null,
+                    new ByteArrayInputStream(Arrays.copyOf(compressed, compressed.length - 10))));
+        }
+        byte[] corrupt = compressed.clone();
+        corrupt[corrupt.length - 1] ^= 1;
+        try (ZipStreamWriter writer = new ZipStreamWriter(OutputStream.nullOutputStream())) {
+            assertThrows(ZipException.class, () -> writer.putZlibEntry("corrupt.txt", null,
+                    new ByteArrayInputStream(corrupt)));
+        }
+    }
+
+    private static InputStream zlib(byte[] data) {
+        return FileUtils.compressingStream(new ByteArrayInputStream(data), Deflater.DEFAULT_COMPRESSION, false);
+    }
+
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+}